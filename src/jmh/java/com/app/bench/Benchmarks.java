@@ -0,0 +1,184 @@
+// Benchmarks.java
+package com.app.bench;
+
+import com.app.ControlToken;
+import com.app.EventLog;
+import com.app.Node;
+import com.app.RequestToken;
+import com.app.Simulator;
+import com.app.TokenTransport;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Hot-path benchmarks across ring sizes. gradle jmh runs them and writes JMH's JSON
+// to build/results/jmh/results.json, to be diffed between releases; JMH options go
+// in -Pjmh, e.g. -Pjmh="Benchmarks.ringRotation -p size=10,1000".
+// Forwarding and rotation also report hops/s and rotations/s as secondary results.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+public class Benchmarks {
+    private static final long SEED = 42;
+
+    private static final TokenTransport DISCARD = new TokenTransport() {
+        @Override
+        public void sendControlToken(Node from, Node to, Runnable onArrival) { }
+
+        @Override
+        public void sendRequestToken(Node from, Node to, RequestToken token, Runnable onArrival) { }
+    };
+
+    // A token holding every even ID and a request token carrying every ID, in
+    // shuffled order
+    @State(Scope.Benchmark)
+    public static class Queues {
+        @Param({"10", "100", "1000", "10000", "100000"})
+        int size;
+
+        ControlToken base;
+        RequestToken incoming;
+
+        @Setup
+        public void setUp() {
+            Random rand = new Random(SEED);
+            base = new ControlToken();
+            for (int id = 0; id < size; id += 2) {
+                base.addRequest(id);
+            }
+            incoming = new RequestToken(rand.nextInt(size));
+            int[] ids = new int[size];
+            for (int i = 0; i < size; i++) ids[i] = i;
+            for (int i = size - 1; i > 0; i--) {
+                int j = rand.nextInt(i + 1);
+                int tmp = ids[i]; ids[i] = ids[j]; ids[j] = tmp;
+            }
+            for (int id : ids) {
+                incoming.addRequest(id);
+            }
+        }
+    }
+
+    // A Simulator ring; with rotating set, one request sets the ControlToken moving
+    @State(Scope.Thread)
+    public static class Ring {
+        @Param({"10", "100", "1000", "10000", "100000"})
+        int size;
+
+        Simulator sim;
+        Random rand;
+
+        @Setup
+        public void setUp() {
+            sim = new Simulator(size, SEED, 0);
+            rand = new Random(SEED);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Rotating extends Ring {
+        @Setup
+        public void start() {
+            sim.request(size - 1);
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Hops {
+        public long hops;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            hops = 0;
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Laps {
+        public double rotations;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rotations = 0;
+        }
+    }
+
+    // A ring that already has size members, on the shared global ring
+    @State(Scope.Benchmark)
+    public static class Members {
+        @Param({"10", "100", "1000", "10000", "100000"})
+        int size;
+
+        EventLog.Level level;
+
+        @Setup
+        public void setUp() {
+            // Node logs every join and leave; keep that out of the results
+            level = EventLog.getLevel();
+            EventLog.setLevel(EventLog.Level.OFF);
+            Node.createNodes(size, DISCARD);
+        }
+
+        @TearDown
+        public void tearDown() {
+            while (Node.removeLastNode() != null) {
+                // empty the shared ring
+            }
+            EventLog.setLevel(level);
+        }
+    }
+
+    // ControlToken.addAllRequests: the token absorbs the request token
+    @Benchmark
+    public ControlToken mergeRequests(Queues queues) {
+        ControlToken token = new ControlToken();
+        token.addAllRequests(queues.base.getQueue());
+        token.addAllRequests(queues.incoming.getRequests());
+        return token;
+    }
+
+    // RequestToken hops while random nodes keep asking for the CS
+    @Benchmark
+    public void requestForwarding(Ring ring, Hops hops) {
+        Simulator sim = ring.sim;
+        long before = sim.getRequestHops();
+        sim.request(ring.rand.nextInt(ring.size));
+        sim.runUntil(sim.now() + 10 * Simulator.HOP_MILLIS);
+        hops.hops += sim.getRequestHops() - before;
+    }
+
+    // Full laps of the ControlToken
+    @Benchmark
+    public void ringRotation(Rotating ring, Laps laps) {
+        Simulator sim = ring.sim;
+        long before = sim.getControlHops();
+        sim.runUntil(sim.now() + 1000 * Simulator.HOP_MILLIS);
+        laps.rotations += (sim.getControlHops() - before) / (double) ring.size;
+    }
+
+    // Node.createNode + Node.removeLastNode pairs
+    @Benchmark
+    public Node nodeChurn(Members members) {
+        Node.createNode(DISCARD);
+        return Node.removeLastNode();
+    }
+}
@@ -1,9 +0,0 @@
-/**
- * 
- */
-/**
- * 
- */
-module token_ring {
-	requires java.desktop;
-}
\ No newline at end of file
@@ -0,0 +1,92 @@
+// LatencyHistogramTest.java
+package com.app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+    @Test
+    void emptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMean());
+        assertEquals(0, histogram.percentile(99));
+    }
+
+    @Test
+    void exactBelow128() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 0; value < 100; value++) {
+            histogram.record(value);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(99, histogram.getMax());
+        assertEquals(49.5, histogram.getMean(), 1e-9);
+        assertEquals(49, histogram.percentile(50));
+        assertEquals(89, histogram.percentile(90));
+        assertEquals(99, histogram.percentile(100));
+    }
+
+    @Test
+    void largeValuesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] values = { 200, 5_000, 1_000_000, 123_456_789, Long.MAX_VALUE / 4 };
+        for (long value : values) {
+            histogram.record(value);
+        }
+        for (int i = 0; i < values.length; i++) {
+            long reported = histogram.percentile(100.0 * (i + 1) / values.length);
+            assertTrue(reported >= values[i], values[i] + " reported as " + reported);
+            assertTrue(reported - values[i] <= values[i] / 60, values[i] + " reported as " + reported);
+        }
+        assertEquals(Long.MAX_VALUE / 4, histogram.getMax());
+    }
+
+    @Test
+    void rejectsNegativeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertThrows(IllegalArgumentException.class, () -> histogram.record(-1));
+    }
+
+    @Test
+    void addMergesCountsAndMax() {
+        LatencyHistogram a = new LatencyHistogram();
+        LatencyHistogram b = new LatencyHistogram();
+        for (int value = 1; value <= 10; value++) {
+            a.record(value);
+            b.record(1000 * value);
+        }
+        a.add(b);
+        assertEquals(20, a.getCount());
+        assertEquals(10_000, a.getMax());
+        assertEquals(10, a.percentile(50));
+        assertEquals((55 + 55_000) / 20.0, a.getMean(), 1e-9);
+    }
+
+    @Test
+    void concurrentRecordsAreAllCounted() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i % 500);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40_000, histogram.getCount());
+        assertEquals(499, histogram.getMax());
+    }
+}
@@ -0,0 +1,97 @@
+// MailboxTest.java
+package com.app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+class MailboxTest {
+
+    @Test
+    void emptyMailboxPollsNull() {
+        Mailbox mailbox = new Mailbox();
+        assertTrue(mailbox.isEmpty());
+        assertNull(mailbox.poll());
+    }
+
+    @Test
+    void keepsOrderWithoutBound() {
+        Mailbox mailbox = new Mailbox();
+        int n = 100_000;
+        for (int i = 0; i < n; i++) {
+            mailbox.offer(i);
+        }
+        for (int i = 0; i < n; i++) {
+            assertEquals(i, mailbox.poll());
+        }
+        assertTrue(mailbox.isEmpty());
+    }
+
+    @Test
+    void interleavedOffersAndPolls() {
+        Mailbox mailbox = new Mailbox();
+        Object first = new Object(), second = new Object();
+        mailbox.offer(first);
+        assertSame(first, mailbox.poll());
+        assertTrue(mailbox.isEmpty());
+        mailbox.offer(second);
+        mailbox.offer(first);
+        assertSame(second, mailbox.poll());
+        assertSame(first, mailbox.poll());
+        assertNull(mailbox.poll());
+    }
+
+    // Several producers against the one consumer: nothing lost or duplicated, and
+    // each producer's messages come out in the order it offered them
+    @Test
+    void keepsEachProducersOrder() throws InterruptedException {
+        Mailbox mailbox = new Mailbox();
+        int producers = 4, perProducer = 50_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    mailbox.offer(new int[] { producer, i });
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+
+        int[] next = new int[producers];
+        int received = 0;
+        while (received < producers * perProducer) {
+            Object message = mailbox.poll();
+            if (message == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            int[] pair = (int[]) message;
+            assertEquals(next[pair[0]], pair[1]);
+            next[pair[0]]++;
+            received++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(mailbox.isEmpty());
+        for (int count : next) {
+            assertEquals(perProducer, count);
+        }
+    }
+}
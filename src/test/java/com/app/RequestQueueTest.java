@@ -0,0 +1,172 @@
+// RequestQueueTest.java
+package com.app;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.Test;
+
+class RequestQueueTest {
+
+    // Leaves the ring buffer wrapped: head in the middle, the tail past the end
+    private static RequestQueue wrapped() {
+        RequestQueue queue = new RequestQueue(4);
+        for (int id = 0; id < 4; id++) {
+            queue.add(id);
+        }
+        assertEquals(0, queue.poll());
+        assertEquals(1, queue.poll());
+        queue.add(4);
+        queue.add(5);
+        return queue;
+    }
+
+    @Test
+    void keepsFifoOrderAcrossTheWrap() {
+        RequestQueue queue = wrapped();
+        assertArrayEquals(new int[] { 2, 3, 4, 5 }, queue.toArray());
+        for (int i = 0; i < queue.size(); i++) {
+            assertEquals(i + 2, queue.get(i));
+        }
+    }
+
+    @Test
+    void growsWhileWrapped() {
+        RequestQueue queue = wrapped();
+        for (int id = 6; id < 40; id++) {
+            queue.add(id);
+        }
+        assertEquals(38, queue.size());
+        for (int id = 2; id < 40; id++) {
+            assertEquals(id, queue.poll());
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void removesAcrossTheWrap() {
+        RequestQueue queue = wrapped();
+        assertTrue(queue.remove(3));
+        assertFalse(queue.remove(3));
+        assertArrayEquals(new int[] { 2, 4, 5 }, queue.toArray());
+        queue.add(3);
+        assertArrayEquals(new int[] { 2, 4, 5, 3 }, queue.toArray());
+    }
+
+    @Test
+    void ignoresDuplicates() {
+        RequestQueue queue = new RequestQueue();
+        assertTrue(queue.add(7));
+        assertFalse(queue.add(7));
+        assertEquals(1, queue.size());
+        assertThrows(IllegalArgumentException.class, () -> queue.add(-1));
+    }
+
+    @Test
+    void emptyQueueHasNoHead() {
+        RequestQueue queue = new RequestQueue();
+        assertThrows(NoSuchElementException.class, queue::peek);
+        assertThrows(NoSuchElementException.class, queue::poll);
+    }
+
+    @Test
+    void containsAllComparesMembership() {
+        RequestQueue all = new RequestQueue();
+        RequestQueue some = new RequestQueue();
+        for (int id = 0; id < 200; id += 3) {
+            all.add(id);
+            if (id % 2 == 0) {
+                some.add(id);
+            }
+        }
+        assertTrue(all.containsAll(some));
+        assertFalse(some.containsAll(all));
+        some.add(1000);
+        assertFalse(all.containsAll(some));
+    }
+
+    @Test
+    void scheduleServesByDueThenArrival() {
+        RequestQueue queue = new RequestQueue();
+        queue.add(9);
+        queue.add(3, 10);
+        queue.add(1, 10);
+        queue.add(2, 5);
+        queue.add(7);
+        assertTrue(queue.isScheduled());
+        assertArrayEquals(new int[] { 2, 3, 1, 9, 7 }, queue.toArray());
+        for (int id : new int[] { 2, 3, 1, 9, 7 }) {
+            assertEquals(id, queue.poll());
+        }
+    }
+
+    @Test
+    void earlierDueTimeWins() {
+        RequestQueue queue = new RequestQueue();
+        queue.add(1, 50);
+        queue.add(2, 60);
+        assertFalse(queue.add(2, 40));
+        assertFalse(queue.add(1, 90));
+        assertEquals(40, queue.getDue(2));
+        assertEquals(50, queue.getDue(1));
+        assertEquals(2, queue.peek());
+    }
+
+    @Test
+    void scheduleGrowsAndRemovesByDue() {
+        RequestQueue queue = new RequestQueue(4);
+        for (int id = 0; id < 100; id++) {
+            queue.add(id, 1000 - (id % 10));
+        }
+        assertTrue(queue.remove(9));
+        assertEquals(Long.MAX_VALUE, queue.getDue(9));
+        int[] order = queue.toArray();
+        assertEquals(99, order.length);
+        for (int i = 1; i < order.length; i++) {
+            long before = queue.getDue(order[i - 1]);
+            long after = queue.getDue(order[i]);
+            assertTrue(before < after || (before == after && order[i - 1] < order[i]));
+        }
+    }
+
+    @Test
+    void addAllKeepsScheduleTiesInArrivalOrder() {
+        RequestQueue other = new RequestQueue();
+        for (int id = 20; id > 0; id--) {
+            other.add(id, 100);
+        }
+        RequestQueue queue = new RequestQueue();
+        queue.addAll(other);
+        assertArrayEquals(other.toArray(), queue.toArray());
+        assertEquals(20, queue.peek());
+    }
+
+    @Test
+    void clearTurnsAScheduleBackIntoAFifo() {
+        RequestQueue queue = new RequestQueue();
+        queue.add(4, 10);
+        queue.add(2, 5);
+        queue.clear();
+        assertTrue(queue.isEmpty());
+        assertFalse(queue.isScheduled());
+        assertFalse(queue.contains(4));
+        queue.add(8);
+        queue.add(6);
+        assertArrayEquals(new int[] { 8, 6 }, queue.toArray());
+        queue.add(1, 3);
+        assertArrayEquals(new int[] { 1, 8, 6 }, queue.toArray());
+    }
+
+    @Test
+    void copyIsIndependent() {
+        RequestQueue queue = wrapped();
+        RequestQueue copy = new RequestQueue(queue);
+        queue.poll();
+        assertArrayEquals(new int[] { 2, 3, 4, 5 }, copy.toArray());
+    }
+}
@@ -0,0 +1,162 @@
+// WireCodecTest.java
+package com.app;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.jupiter.api.Test;
+
+class WireCodecTest {
+
+    // Encodes one frame, checks its header and decodes the body back
+    private static Object roundTrip(Object message, byte type) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        assertTrue(WireCodec.encode(message, 7, 123L, buffer));
+        buffer.flip();
+        assertEquals(buffer.remaining() - 4, buffer.getInt());
+        assertEquals(type, buffer.get());
+        assertEquals(123L, buffer.getLong());
+        assertEquals(7, WireCodec.getVarint(buffer));
+        Object decoded = WireCodec.decode(type, buffer);
+        assertEquals(0, buffer.remaining());
+        return decoded;
+    }
+
+    private static void assertSameQueue(RequestQueue expected, RequestQueue actual) {
+        assertEquals(expected.isScheduled(), actual.isScheduled());
+        assertArrayEquals(expected.toArray(), actual.toArray());
+        for (int id : expected.toArray()) {
+            assertEquals(expected.getDue(id), actual.getDue(id));
+        }
+    }
+
+    @Test
+    void controlTokenInFifoMode() {
+        ControlToken token = new ControlToken(3, 2);
+        token.restore(41, 3, 12, 3400);
+        for (int id : new int[] { 5, 1, 9, 70000, 0 }) {
+            token.addRequest(id);
+        }
+
+        ControlToken decoded = (ControlToken) roundTrip(token, WireCodec.CONTROL);
+        assertEquals(3, decoded.getId());
+        assertEquals(2, decoded.getEpoch());
+        assertEquals(41, decoded.getSequence());
+        assertEquals(3, decoded.getHopsSinceGrant());
+        assertEquals(12, decoded.getGrants());
+        assertEquals(3400, decoded.getBusyMillis());
+        assertSameQueue(token.getQueue(), decoded.getQueue());
+    }
+
+    @Test
+    void controlTokenInScheduleModeKeepsTiesInArrivalOrder() {
+        ControlToken token = new ControlToken(0, 1);
+        token.addRequest(4, 500);
+        token.addRequest(2, 100);
+        token.addRequest(8, 500);
+        token.addRequest(6, 100);
+        token.addRequest(1);
+        token.addRequest(11, 100);
+
+        ControlToken decoded = (ControlToken) roundTrip(token, WireCodec.CONTROL);
+        assertArrayEquals(new int[] { 2, 6, 11, 4, 8, 1 }, decoded.getQueue().toArray());
+        assertSameQueue(token.getQueue(), decoded.getQueue());
+    }
+
+    @Test
+    void requestTokenInFifoMode() {
+        RequestToken token = new RequestToken(5);
+        token.stamp(1000);
+        token.setHops(4);
+        int[] ids = { 17, 3, 64, 65, 2, 128, 40 };
+        for (int id : ids) {
+            token.addRequest(id);
+        }
+
+        RequestToken decoded = (RequestToken) roundTrip(token, WireCodec.REQUEST);
+        assertEquals(5, decoded.getOriginNodeId());
+        assertEquals(1000, decoded.getCreatedAt());
+        assertEquals(4, decoded.getHops());
+        assertFalse(decoded.getRequests().isScheduled());
+        // A request token may come back as a bitmap, which does not keep order
+        assertEquals(ids.length + 1, decoded.getRequests().size());
+        assertTrue(decoded.contains(5));
+        for (int id : ids) {
+            assertTrue(decoded.contains(id));
+        }
+    }
+
+    @Test
+    void sparseRequestTokenKeepsItsIds() {
+        RequestToken token = new RequestToken(0);
+        token.addRequest(1_000_000);
+        token.addRequest(1);
+
+        RequestToken decoded = (RequestToken) roundTrip(token, WireCodec.REQUEST);
+        assertEquals(3, decoded.getRequests().size());
+        assertTrue(decoded.contains(0));
+        assertTrue(decoded.contains(1_000_000));
+        assertTrue(decoded.contains(1));
+    }
+
+    // A poll moves the heap's last entry to the root, so its slots no longer run in
+    // arrival order among IDs due together
+    @Test
+    void scheduleAfterAPollKeepsTiesInArrivalOrder() {
+        ControlToken token = new ControlToken(0);
+        token.addRequest(99, 1);
+        for (int id = 10; id <= 60; id += 10) {
+            token.addRequest(id, 100);
+        }
+        assertEquals(99, token.removeRequest());
+
+        ControlToken decoded = (ControlToken) roundTrip(token, WireCodec.CONTROL);
+        assertArrayEquals(new int[] { 10, 20, 30, 40, 50, 60 }, decoded.getQueue().toArray());
+    }
+
+    @Test
+    void requestTokenInScheduleMode() {
+        RequestToken token = new RequestToken(9);
+        token.stamp(77);
+        token.addRequest(9, 300);
+        token.addRequest(3, 300);
+        token.addRequest(5, 200);
+        token.addRequest(12, 300);
+
+        RequestToken decoded = (RequestToken) roundTrip(token, WireCodec.REQUEST);
+        assertArrayEquals(new int[] { 5, 9, 3, 12 }, decoded.getRequests().toArray());
+        assertSameQueue(token.getRequests(), decoded.getRequests());
+    }
+
+    @Test
+    void frameThatDoesNotFitLeavesTheBufferUntouched() {
+        ControlToken token = new ControlToken(0);
+        for (int id = 0; id < 100; id++) {
+            token.addRequest(id * 1000);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(32).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(5);
+        assertFalse(WireCodec.encode(token, 1, 0, buffer));
+        assertEquals(5, buffer.position());
+    }
+
+    @Test
+    void varintsRoundTrip() {
+        ByteBuffer buffer = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+        long[] values = { 0, 1, 127, 128, 300, Integer.MAX_VALUE, Long.MAX_VALUE };
+        for (long value : values) {
+            WireCodec.putVarlong(buffer, value);
+        }
+        WireCodec.putVarint(buffer, 16384);
+        buffer.flip();
+        for (long value : values) {
+            assertEquals(value, WireCodec.getVarlong(buffer));
+        }
+        assertEquals(16384, WireCodec.getVarint(buffer));
+    }
+}
@@ -0,0 +1,407 @@
+// Graph.java
+package com.app.ui;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.geom.Arc2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.app.ControlToken;
+import com.app.EventLog;
+import com.app.Node;
+import com.app.RequestToken;
+import com.app.RingSnapshot;
+import com.app.TokenTransport;
+
+// Animates token hops and draws the ring. Hops advance on a clock thread of their
+// own and arrivals run on the delivery thread, so no protocol code runs on the EDT.
+// Each clock tick also captures a RingView; painting draws only the latest one and
+// never touches a Node, so a slow frame cannot hold up the protocol or the reverse.
+public class Graph extends JPanel implements TokenTransport {
+    private static final long serialVersionUID = 1L;
+    // Override with -Dtoken_ring.maxNodes=N; the drawing is sized for about 10
+    static final int MAX_NODES = Integer.getInteger("token_ring.maxNodes", 10);
+
+    // Rings at least this large are drawn as a heatmap of node states
+    static final int LOD_THRESHOLD = Integer.getInteger("token_ring.lodThreshold", 1000);
+    private static final int HEATMAP_BINS = 360;
+    
+    // Edges and arrows only change with membership, so they are drawn once into an
+    // offscreen image and blitted every frame
+    private transient BufferedImage ringLayer;
+    private long ringLayerVersion = -1;
+    private boolean ringLayerDetailed;
+    private final int[][] binCounts = new int[Node.NodeState.values().length][HEATMAP_BINS];
+    private int[] holders = new int[8];
+    
+    // When each control token was first captured, to turn busy time into occupancy;
+    // clock thread only
+    private final Map<ControlToken, Long> tokenSeenAt = new IdentityHashMap<>();
+    // Written by the clock thread, read by paintComponent()
+    private volatile RingView view = RingView.EMPTY;
+
+    // Token animations in flight, kept in parallel arrays and driven by one frame clock
+    private static final int FRAME_MILLIS = 20;
+    private static final float STEP = 0.05f;
+    private static final byte CONTROL = 0, REQUEST = 1;
+    
+    private final Object flightLock = new Object();
+    private Node[] flightFrom = new Node[64];
+    private Node[] flightTo = new Node[64];
+    private float[] flightProgress = new float[64];
+    private byte[] flightKind = new byte[64];
+    private Runnable[] flightDone = new Runnable[64];
+    private int flightCount = 0;
+    private Runnable[] finished = new Runnable[64];  // reused by onFrame()
+    
+    // Arrival callbacks run here, never on the EDT
+    private final ExecutorService delivery = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "token-delivery");
+        t.setDaemon(true);
+        return t;
+    });
+    // Moves the tokens and captures views; the EDT only paints
+    private final ScheduledExecutorService clock = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "token-clock");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public Graph() {
+        setPreferredSize(new Dimension(900, 650));
+        clock.scheduleAtFixedRate(this::onFrame, FRAME_MILLIS, FRAME_MILLIS, TimeUnit.MILLISECONDS);
+    }
+    
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2d = (Graphics2D) g;
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        
+        // Everything drawn comes from one captured view
+        RingView frame = view;
+        RingSnapshot ring = frame.getRing();
+        boolean detailed = ring.size() < LOD_THRESHOLD;
+        
+        // Draw ring edges
+        drawRingLayer(g2d, ring, detailed);
+        
+        // Draw nodes
+        if (detailed) {
+            drawNodes(g2d, frame);
+        } else {
+            drawHeatmap(g2d, frame);
+        }
+        drawTokenStats(g2d, frame);
+        
+        // Draw moving tokens
+        for (int i = 0; i < frame.flightCount(); i++) {
+            int x = frame.flightX(i), y = frame.flightY(i);
+            boolean control = frame.flightKind(i) == CONTROL;
+            g2d.setColor(control ? Color.ORANGE : Color.MAGENTA);
+            g2d.fillOval(x - 10, y - 10, 20, 20);
+            g2d.setColor(Color.BLACK);
+            g2d.drawString(control ? "C" : "R", x - 3, y + 5);
+        }
+    }
+
+    private void drawRingLayer(Graphics2D g2d, RingSnapshot ring, boolean detailed) {
+        long version = ring.getVersion();
+        if (ringLayer == null || ringLayerVersion != version || ringLayerDetailed != detailed
+                || ringLayer.getWidth() != getWidth() || ringLayer.getHeight() != getHeight()) {
+            ringLayer = new BufferedImage(Math.max(1, getWidth()), Math.max(1, getHeight()),
+                                          BufferedImage.TYPE_INT_ARGB);
+            Graphics2D layer = ringLayer.createGraphics();
+            layer.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            if (detailed) {
+                drawRingEdges(layer, ring);
+            } else {
+                layer.setColor(Color.GRAY);
+                layer.drawOval(RingSnapshot.CENTER_X - RingSnapshot.RADIUS,
+                               RingSnapshot.CENTER_Y - RingSnapshot.RADIUS,
+                               2 * RingSnapshot.RADIUS, 2 * RingSnapshot.RADIUS);
+            }
+            layer.dispose();
+            ringLayerVersion = version;
+            ringLayerDetailed = detailed;
+        }
+        g2d.drawImage(ringLayer, 0, 0, null);
+    }
+
+    // Large rings: one arc per bin of neighbouring nodes, coloured by the mix of
+    // their states, so the cost of drawing does not grow with the ring
+    private void drawHeatmap(Graphics2D g2d, RingView frame) {
+        for (int[] counts : binCounts) {
+            Arrays.fill(counts, 0);
+        }
+        RingSnapshot ring = frame.getRing();
+        int holderCount = 0;
+        int nodeCount = frame.size();
+        for (int i = 0; i < nodeCount; i++) {
+            binCounts[frame.state(i).ordinal()][(int) ((long) i * HEATMAP_BINS / nodeCount)]++;
+            if (frame.heldToken(i) >= 0) {
+                if (holderCount == holders.length) {
+                    holders = Arrays.copyOf(holders, holderCount * 2);
+                }
+                holders[holderCount++] = i;
+            }
+        }
+        
+        Node.NodeState[] states = Node.NodeState.values();
+        int r = RingSnapshot.RADIUS;
+        int cx = RingSnapshot.CENTER_X, cy = RingSnapshot.CENTER_Y;
+        float extent = 360f / HEATMAP_BINS;
+        g2d.setStroke(new BasicStroke(16, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER));
+        for (int bin = 0; bin < HEATMAP_BINS; bin++) {
+            int red = 0, green = 0, blue = 0, total = 0;
+            for (Node.NodeState state : states) {
+                int count = binCounts[state.ordinal()][bin];
+                Color c = colorOf(state);
+                red += c.getRed() * count;
+                green += c.getGreen() * count;
+                blue += c.getBlue() * count;
+                total += count;
+            }
+            if (total == 0) continue;
+            g2d.setColor(new Color(red / total, green / total, blue / total));
+            // Nodes go clockwise on screen, arcs are measured counter-clockwise
+            g2d.draw(new Arc2D.Float(cx - r, cy - r, 2 * r, 2 * r,
+                                     -bin * extent, -extent, Arc2D.OPEN));
+        }
+        
+        g2d.setColor(Color.ORANGE);
+        for (int h = 0; h < holderCount; h++) {
+            g2d.fillOval(ring.x(holders[h]) - 6, ring.y(holders[h]) - 6, 12, 12);
+        }
+        g2d.setColor(Color.BLACK);
+        g2d.drawString(nodeCount + " nodes", cx - 25, cy + 5);
+    }
+
+    private void drawTokenStats(Graphics2D g2d, RingView frame) {
+        g2d.setColor(Color.BLACK);
+        int y = 20;
+        for (String line : frame.tokenLines()) {
+            g2d.drawString(line, 10, y);
+            y += 15;
+        }
+    }
+
+    // Per-token occupancy: share of time the token has spent with a node in the CS
+    private List<String> tokenLines() {
+        List<ControlToken> tokens = Node.getTokens();
+        tokenSeenAt.keySet().retainAll(tokens);
+        long now = System.nanoTime() / 1_000_000;
+        List<String> lines = new ArrayList<>(tokens.size());
+        for (ControlToken token : tokens) {
+            long seen = tokenSeenAt.computeIfAbsent(token, t -> now);
+            double busy = now > seen ? 100.0 * token.getBusyMillis() / (now - seen) : 0;
+            lines.add(String.format("Token %d (gen %d): %3.0f%% busy, %d grants, %d queued",
+                                    token.getId(), token.getEpoch(), Math.min(100, busy),
+                                    token.getGrants(), token.getQueue().size()));
+        }
+        return lines;
+    }
+
+    private void drawRingEdges(Graphics2D g2d, RingSnapshot ring) {
+        g2d.setColor(Color.GRAY);
+        g2d.setStroke(new BasicStroke(2));
+        
+        for (int i = 0; i < ring.size(); i++) {
+            int next = (i + 1) % ring.size();
+            Point from = new Point(ring.x(i), ring.y(i));
+            Point to = new Point(ring.x(next), ring.y(next));
+            g2d.drawLine(from.x, from.y, to.x, to.y);
+            
+            // Draw arrow
+            drawArrow(g2d, from, to);
+        }
+    }
+    
+    private void drawArrow(Graphics2D g2d, Point from, Point to) {
+        double angle = Math.atan2(to.y - from.y, to.x - from.x);
+        int arrowSize = 10;
+        Point tip = new Point(
+            (int)(to.x - 30 * Math.cos(angle)),
+            (int)(to.y - 30 * Math.sin(angle))
+        );
+        
+        Point arrow1 = new Point(
+            (int)(tip.x - arrowSize * Math.cos(angle - Math.PI/6)),
+            (int)(tip.y - arrowSize * Math.sin(angle - Math.PI/6))
+        );
+        
+        Point arrow2 = new Point(
+            (int)(tip.x - arrowSize * Math.cos(angle + Math.PI/6)),
+            (int)(tip.y - arrowSize * Math.sin(angle + Math.PI/6))
+        );
+        
+        g2d.fillPolygon(
+            new int[]{tip.x, arrow1.x, arrow2.x},
+            new int[]{tip.y, arrow1.y, arrow2.y},
+            3
+        );
+    }
+
+    private void drawNodes(Graphics2D g2d, RingView frame) {
+        RingSnapshot ring = frame.getRing();
+        for (int i = 0; i < frame.size(); i++) {
+            Node.NodeState state = frame.state(i);
+            Point pos = new Point(ring.x(i), ring.y(i));
+            Color color = colorOf(state);
+            
+            // Draw node
+            g2d.setColor(color);
+            g2d.fillOval(pos.x - 20, pos.y - 20, 40, 40);
+            
+            // Highlight if in CS
+            if (state == Node.NodeState.IN_CS) {
+                g2d.setColor(Color.BLACK);
+                g2d.setStroke(new BasicStroke(3));
+                g2d.drawOval(pos.x - 24, pos.y - 24, 48, 48);
+            }
+            
+            // Outline for token holder, tagged with the token's id
+            int tokenId = frame.heldToken(i);
+            if (tokenId >= 0) {
+                g2d.setColor(Color.ORANGE);
+                g2d.setStroke(new BasicStroke(2));
+                g2d.drawOval(pos.x - 22, pos.y - 22, 44, 44);
+                g2d.drawString("T" + tokenId, pos.x + 20, pos.y - 20);
+            }
+            
+            // Draw node ID
+            g2d.setColor(Color.BLACK);
+            g2d.drawString(String.valueOf(frame.nodeId(i)), pos.x - 5, pos.y + 5);
+        }
+    }
+
+    // Node states have no colour of their own, so the core needs no AWT
+    static Color colorOf(Node.NodeState state) {
+        switch (state) {
+            case REQUESTING: return Color.YELLOW;
+            case HAS_TOKEN: return Color.BLUE;
+            case IN_CS: return Color.RED;
+            default: return Color.GREEN;
+        }
+    }
+
+    @Override
+    public void sendControlToken(Node from, Node to, Runnable onArrival) {
+        animate(from, to, CONTROL, onArrival);
+    }
+
+    @Override
+    public void sendRequestToken(Node from, Node to, RequestToken token, Runnable onArrival) {
+        animate(from, to, REQUEST, onArrival);
+    }
+
+    // May be called from any thread
+    private void animate(Node from, Node to, byte kind, Runnable onFinish) {
+        synchronized (flightLock) {
+            if (flightCount == flightFrom.length) {
+                int n = flightCount * 2;
+                flightFrom = Arrays.copyOf(flightFrom, n);
+                flightTo = Arrays.copyOf(flightTo, n);
+                flightProgress = Arrays.copyOf(flightProgress, n);
+                flightKind = Arrays.copyOf(flightKind, n);
+                flightDone = Arrays.copyOf(flightDone, n);
+                finished = new Runnable[n];
+            }
+            flightFrom[flightCount] = from;
+            flightTo[flightCount] = to;
+            flightProgress[flightCount] = 0;
+            flightKind[flightCount] = kind;
+            flightDone[flightCount] = onFinish;
+            flightCount++;
+        }
+    }
+
+    // One tick of the shared frame clock, on the clock thread. A periodic task that
+    // throws is cancelled for good, so a failed frame is logged and the next one runs
+    private void onFrame() {
+        try {
+            advanceFrame();
+        } catch (RuntimeException e) {
+            EventLog.log(EventLog.Level.WARN, -1, "Frame failed: %s", e);
+        }
+    }
+
+    // Advance every token, hand finished ones to the delivery thread, then capture
+    // and show a new view
+    private void advanceFrame() {
+        int done = 0;
+        RingSnapshot ring = Node.getRing();
+        int[] flightXY;
+        byte[] flightKinds;
+        synchronized (flightLock) {
+            int i = 0;
+            while (i < flightCount) {
+                flightProgress[i] += STEP;
+                if (flightProgress[i] < 1) {
+                    i++;
+                    continue;
+                }
+                if (flightDone[i] != null) {
+                    finished[done++] = flightDone[i];
+                }
+                // Swap the last flight into this slot
+                int last = --flightCount;
+                flightFrom[i] = flightFrom[last];
+                flightTo[i] = flightTo[last];
+                flightProgress[i] = flightProgress[last];
+                flightKind[i] = flightKind[last];
+                flightDone[i] = flightDone[last];
+                flightFrom[last] = flightTo[last] = null;
+                flightDone[last] = null;
+            }
+            for (int k = 0; k < done; k++) {
+                delivery.execute(finished[k]);
+                finished[k] = null;
+            }
+            flightXY = new int[2 * flightCount];
+            flightKinds = new byte[flightCount];
+            int shown = 0;
+            for (int f = 0; f < flightCount; f++) {
+                int from = ring.indexOf(flightFrom[f]);
+                int to = ring.indexOf(flightTo[f]);
+                if (from < 0 || to < 0) continue;  // an end left the ring
+                float p = flightProgress[f];
+                flightXY[2 * shown] = (int) (ring.x(from) + (ring.x(to) - ring.x(from)) * p);
+                flightXY[2 * shown + 1] = (int) (ring.y(from) + (ring.y(to) - ring.y(from)) * p);
+                flightKinds[shown++] = flightKind[f];
+            }
+            if (shown < flightCount) {
+                flightXY = Arrays.copyOf(flightXY, 2 * shown);
+                flightKinds = Arrays.copyOf(flightKinds, shown);
+            }
+        }
+        view = RingView.capture(ring, tokenLines(), flightXY, flightKinds);
+        repaint();
+    }
+
+    void addNode(ActionEvent e) {
+        if (Node.getRing().size() >= MAX_NODES) {
+            JOptionPane.showMessageDialog(this, "Max " + MAX_NODES + " nodes allowed!");
+            return;
+        }
+        Node node = Node.createNode(this);
+        node.start();
+    }
+
+    void removeNode(ActionEvent e) {
+        Node removed = Node.removeLastNode();
+        if (removed == null) {
+            JOptionPane.showMessageDialog(this, "No nodes to remove!");
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,125 @@
+// Main.java
+package com.app.ui;
+
+import javax.swing.*;
+import javax.swing.text.Element;
+import java.awt.*;
+
+import com.app.Checkpoint;
+import com.app.EventLog;
+import com.app.Node;
+import com.app.RingMetrics;
+
+public class Main extends JFrame {
+    private static final long serialVersionUID = 1L;
+	private final Graph graph = new Graph();
+
+    public Main() {
+        super("Token Ring Algorithm");
+        setDefaultCloseOperation(EXIT_ON_CLOSE);
+        setLayout(new BorderLayout());
+        
+        // Control panel
+        JPanel controls = new JPanel();
+        JButton addBtn = new JButton("Add Node");
+        JButton removeBtn = new JButton("Remove Node");
+        
+        addBtn.addActionListener(graph::addNode);
+        removeBtn.addActionListener(graph::removeNode);
+        
+        controls.add(addBtn);
+        controls.add(removeBtn);
+        
+        // Info panel
+        JTextArea logs = new JTextArea(10, 30);
+        logs.setEditable(false);
+        JScrollPane logScroll = new JScrollPane(logs);
+        logScroll.setBorder(BorderFactory.createTitledBorder("Logs"));
+        
+        // Route the protocol log to the log panel
+        EventLog.addSink(new TextAreaSink(logs));
+        
+        // Back where the last run left off, with token_ring.checkpoint set
+        for (Node node : Checkpoint.resume(graph)) {
+            node.start();
+        }
+        
+        add(graph, BorderLayout.CENTER);
+        add(controls, BorderLayout.SOUTH);
+        add(logScroll, BorderLayout.EAST);
+        
+        pack();
+        setLocationRelativeTo(null);
+        setVisible(true);
+    }
+
+    public static void main(String[] args) {
+        Node.requireRingAlgorithm();
+        // The last checkpoint and what the session measured, on the way out
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            Checkpoint.writeQuietly();
+            System.out.print(RingMetrics.GLOBAL.report());
+        }, "metrics-report"));
+        SwingUtilities.invokeLater(Main::new);
+    }
+    
+    // Log sink that buffers batches from the log thread and appends them to the
+    // JTextArea once per frame on the EDT, keeping only the newest lines. The buffer
+    // holds no more than the area shows; older lines are dropped and counted
+    static class TextAreaSink implements EventLog.Sink {
+        private static final int FRAME_MILLIS = 33;
+        private static final int MAX_LINES = Integer.getInteger("token_ring.logLines", 500);
+        
+        private final JTextArea textArea;
+        private final StringBuilder pending = new StringBuilder();
+        private int pendingLines = 0;
+        private long droppedLines = 0;
+        
+        public TextAreaSink(JTextArea textArea) {
+            this.textArea = textArea;
+            new Timer(FRAME_MILLIS, e -> flush()).start();
+        }
+        
+        @Override
+        public void write(CharSequence batch) {
+            synchronized (pending) {
+                pending.append(batch);
+                for (int i = 0; i < batch.length(); i++) {
+                    if (batch.charAt(i) == '\n') pendingLines++;
+                }
+                if (pendingLines > MAX_LINES) {
+                    int excess = pendingLines - MAX_LINES;
+                    int cut = 0;
+                    for (int n = 0; n < excess; n++) {
+                        cut = pending.indexOf("\n", cut) + 1;
+                    }
+                    pending.delete(0, cut);
+                    pendingLines = MAX_LINES;
+                    droppedLines += excess;
+                }
+            }
+        }
+        
+        private void flush() {
+            String text;
+            synchronized (pending) {
+                if (pending.length() == 0) return;
+                text = pending.toString();
+                pending.setLength(0);
+                pendingLines = 0;
+                if (droppedLines > 0) {
+                    text = "... " + droppedLines + " lines dropped\n" + text;
+                    droppedLines = 0;
+                }
+            }
+            textArea.append(text);
+            
+            Element root = textArea.getDocument().getDefaultRootElement();
+            int excess = root.getElementCount() - MAX_LINES;
+            if (excess > 0) {
+                textArea.replaceRange("", 0, root.getElement(excess - 1).getEndOffset());
+            }
+            textArea.setCaretPosition(textArea.getDocument().getLength());
+        }
+    }
+}
\ No newline at end of file
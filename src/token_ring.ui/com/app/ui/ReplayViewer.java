@@ -0,0 +1,73 @@
+// ReplayViewer.java
+package com.app.ui;
+
+import java.awt.BorderLayout;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JSlider;
+import javax.swing.SwingUtilities;
+
+import com.app.Node;
+import com.app.TraceReplay;
+
+// Shows the ring of a binary trace in a Graph, with a slider to move through the
+// run; TraceReplay rebuilds the ring at each stop. Times are ms from the first record.
+// Usage: ReplayViewer <dir>
+public class ReplayViewer {
+    private static void show(Path dir, long start, long end) {
+        Graph graph = new Graph();
+        // Replays run off the EDT, one at a time and in slider order; only they touch cache
+        ExecutorService replaying = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "trace-replay");
+            t.setDaemon(true);
+            return t;
+        });
+        Map<Integer, Node> cache = new HashMap<>();
+        JLabel label = new JLabel();
+        JSlider slider = new JSlider(0, (int) Math.min(Integer.MAX_VALUE, end - start), 0);
+        slider.addChangeListener(e -> {
+            if (slider.getValueIsAdjusting()) return;
+            long at = slider.getValue();
+            replaying.execute(() -> {
+                String text;
+                try {
+                    TraceReplay.replay(dir, start + at, cache);
+                    // The graph picks the new ring up on its next frame
+                    text = String.format("t=%d ms of %d", at, end - start);
+                } catch (IOException ex) {
+                    text = "Cannot read trace: " + ex.getMessage();
+                }
+                String shown = text;
+                SwingUtilities.invokeLater(() -> label.setText(shown));
+            });
+        });
+
+        JFrame frame = new JFrame("Token Ring Replay: " + dir);
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.setLayout(new BorderLayout());
+        frame.add(graph, BorderLayout.CENTER);
+        frame.add(slider, BorderLayout.SOUTH);
+        frame.add(label, BorderLayout.NORTH);
+        frame.pack();
+        frame.setLocationRelativeTo(null);
+        frame.setVisible(true);
+        slider.setValue(slider.getMaximum());
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: ReplayViewer <dir>");
+            System.exit(2);
+        }
+        Path dir = Path.of(args[0]);
+        long start = TraceReplay.startTime(dir);
+        long end = TraceReplay.endTime(dir);
+        SwingUtilities.invokeLater(() -> show(dir, start, end));
+    }
+}
@@ -0,0 +1,62 @@
+// RingView.java
+package com.app.ui;
+
+import java.util.List;
+
+import com.app.Node;
+import com.app.RingSnapshot;
+
+// What Graph draws in one frame, captured off the EDT: membership, every member's
+// state and held token, per-token statistics and the tokens in flight. Nothing in
+// it changes after capture, so painting never reads protocol state and the
+// protocol never waits for painting.
+final class RingView {
+    static final RingView EMPTY = new RingView(RingSnapshot.EMPTY, new byte[0], new int[0],
+                                               new String[0], new int[0], new byte[0]);
+
+    private static final Node.NodeState[] STATES = Node.NodeState.values();
+
+    private final RingSnapshot ring;
+    private final byte[] states;
+    private final int[] heldTokens;
+    private final String[] tokenLines;
+    private final int[] flightXY;
+    private final byte[] flightKinds;
+
+    private RingView(RingSnapshot ring, byte[] states, int[] heldTokens, String[] tokenLines,
+                     int[] flightXY, byte[] flightKinds) {
+        this.ring = ring;
+        this.states = states;
+        this.heldTokens = heldTokens;
+        this.tokenLines = tokenLines;
+        this.flightXY = flightXY;
+        this.flightKinds = flightKinds;
+    }
+
+    // Reads each member once; flights are screen positions worked out by the caller
+    static RingView capture(RingSnapshot ring, List<String> tokenLines, int[] flightXY,
+                            byte[] flightKinds) {
+        int n = ring.size();
+        byte[] states = new byte[n];
+        int[] heldTokens = new int[n];
+        for (int i = 0; i < n; i++) {
+            Node node = ring.get(i);
+            states[i] = (byte) node.getState().ordinal();
+            heldTokens[i] = node.getTokenId();
+        }
+        return new RingView(ring, states, heldTokens, tokenLines.toArray(new String[0]), flightXY,
+                            flightKinds);
+    }
+
+    RingSnapshot getRing() { return ring; }
+    int size() { return states.length; }
+    Node.NodeState state(int index) { return STATES[states[index]]; }
+    // Id of the token held by the member at index, or -1
+    int heldToken(int index) { return heldTokens[index]; }
+    int nodeId(int index) { return ring.get(index).getNodeId(); }
+    String[] tokenLines() { return tokenLines; }
+    int flightCount() { return flightKinds.length; }
+    int flightX(int i) { return flightXY[2 * i]; }
+    int flightY(int i) { return flightXY[2 * i + 1]; }
+    byte flightKind(int i) { return flightKinds[i]; }
+}
@@ -0,0 +1,4 @@
+module token_ring.ui {
+	requires java.desktop;
+	requires token_ring;
+}
@@ -0,0 +1,501 @@
+// Checkpoint.java
+package com.app;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.app.EventLog.Level;
+
+// Periodic checkpoints of the global ring to a local file, and warm restart from
+// one. Membership is the published RingSnapshot, which never changes, so it is
+// taken as is; each member then copies its own requests and held token on its own
+// context, pausing only for that copy, and this thread encodes the copies while
+// the ring runs on. A token in flight is saved as its sender copied it on sending
+// (ControlToken.recordSent), never read while it travels. Requests that no
+// token has queued yet are out on request tokens; they are saved as one request
+// token per origin and, on restart, queued on the first token at or after their
+// origin, so no request has to go round again to be found.
+// On with -Dtoken_ring.checkpoint=<file>, every token_ring.checkpointMillis
+// (default 5000); flat rings under the ring algorithm only.
+//
+// File, little-endian: int magic, byte version, varlong capture time (node clock);
+// varint members, each varint id, varint requests, each varlong age ms, byte
+// Priority, varlong ms left to the deadline + 1 (0 for none); varint tokens, each
+// varint holder id + 1 (0 in flight) and a WireCodec CONTROL frame; varint requests
+// in flight, each a WireCodec REQUEST frame. Due times keep the old clock and are
+// shifted onto the new one on restore.
+public final class Checkpoint {
+    private static final int MAGIC = 0x50435254;  // "TRCP"
+    private static final byte VERSION = 1;
+    // If a member does not copy itself in time the last checkpoint is kept
+    private static final long CAPTURE_TIMEOUT_MILLIS = 1000;
+
+    private static final String FILE = System.getProperty("token_ring.checkpoint");
+    private static final long INTERVAL_MILLIS = Long.getLong("token_ring.checkpointMillis", 5000);
+
+    private static ScheduledExecutorService timer = null;
+
+    // One member's copy of its own state, see Node.capture()
+    static final class Member {
+        final int id;
+        // Per pending request, oldest first: ms since it was made, its Priority and
+        // ms left to its deadline (Long.MAX_VALUE for none)
+        final long[] ages;
+        final byte[] classes;
+        final long[] deadlines;
+        // When each is due under priority scheduling, on the node clock, else
+        // Long.MAX_VALUE; due is the oldest one's
+        private final long[] dues;
+        final long due;
+        final ControlToken token;
+        final long pauseNanos;
+        // The copied requests served since, oldest first, each stamped with the
+        // serving token's id, epoch, sequence and grants at entry. Written on the
+        // member's context; the volatile count publishes each stamp.
+        private final int[] servedTokens;
+        private final int[] servedEpochs;
+        private final long[] servedSequences;
+        private final long[] servedGrants;
+        private volatile int servedCount = 0;
+
+        Member(int id, long[] ages, byte[] classes, long[] deadlines, long[] dues,
+               ControlToken token, long pauseNanos) {
+            this.id = id;
+            this.ages = ages;
+            this.classes = classes;
+            this.deadlines = deadlines;
+            this.dues = dues;
+            this.due = dues.length > 0 ? dues[0] : Long.MAX_VALUE;
+            this.token = token;
+            this.pauseNanos = pauseNanos;
+            servedTokens = new int[ages.length];
+            servedEpochs = new int[ages.length];
+            servedSequences = new long[ages.length];
+            servedGrants = new long[ages.length];
+        }
+
+        // The member entered the CS on this token for its oldest request
+        void served(ControlToken token) {
+            int i = servedCount;
+            if (i == ages.length) {
+                return;  // later grants serve requests made after the copy
+            }
+            servedTokens[i] = token.getId();
+            servedEpochs[i] = token.getEpoch();
+            servedSequences[i] = token.getSequence();
+            servedGrants[i] = token.getGrants();
+            servedCount = i + 1;
+        }
+
+        // Without the copied requests that one of these token copies has already
+        // served: such a token no longer queues us, and the request would otherwise
+        // be saved as in flight and granted again on restore
+        Member settle(ControlToken[] tokens) {
+            int served = servedCount;
+            boolean[] drop = new boolean[served];
+            int dropped = 0;
+            for (int i = 0; i < served; i++) {
+                int tokenId = servedTokens[i];
+                if (tokenId < tokens.length && reflects(tokens[tokenId], i)) {
+                    drop[i] = true;
+                    dropped++;
+                }
+            }
+            if (dropped == 0) {
+                return this;
+            }
+            int n = ages.length - dropped;
+            long[] keptAges = new long[n];
+            byte[] keptClasses = new byte[n];
+            long[] keptDeadlines = new long[n];
+            long[] keptDues = new long[n];
+            for (int i = 0, k = 0; i < ages.length; i++) {
+                if (i < served && drop[i]) continue;
+                keptAges[k] = ages[i];
+                keptClasses[k] = classes[i];
+                keptDeadlines[k] = deadlines[i];
+                keptDues[k++] = dues[i];
+            }
+            return new Member(id, keptAges, keptClasses, keptDeadlines, keptDues, token, pauseNanos);
+        }
+
+        // Whether the copy was taken at or after the grant stamped at i. A token sits
+        // at the member from its entry to its exit with the same sequence and grants,
+        // and the copy taken there has already dropped the member from its queue.
+        private boolean reflects(ControlToken copy, int i) {
+            if (copy.getEpoch() != servedEpochs[i]) {
+                return copy.getEpoch() > servedEpochs[i];
+            }
+            if (copy.getSequence() != servedSequences[i]) {
+                return copy.getSequence() > servedSequences[i];
+            }
+            return copy.getGrants() >= servedGrants[i];
+        }
+    }
+
+    private Checkpoint() { }
+
+    public static boolean isEnabled() {
+        return FILE != null;
+    }
+
+    // Call before anything joins the global ring. Rebuilds it from the checkpoint
+    // file if there is one, then checkpoints every INTERVAL_MILLIS. Returns the
+    // restored members for the caller to start, or an empty list.
+    public static synchronized List<Node> resume(TokenTransport transport) {
+        if (FILE == null || timer != null) {
+            return Collections.emptyList();
+        }
+        ProtocolConfig config = ProtocolConfig.DEFAULT;
+        if (config.getAlgorithm() != ProtocolConfig.Algorithm.RING || config.getGroupSize() > 0) {
+            EventLog.log(Level.WARN, -1,
+                         "Checkpoints need a flat ring under the ring algorithm, not %s", config);
+            return Collections.emptyList();
+        }
+        Path path = Path.of(FILE);
+        List<Node> restored = Collections.emptyList();
+        if (Files.exists(path)) {
+            try {
+                restored = restore(path, transport);
+            } catch (IOException | RuntimeException e) {
+                // A checkpoint we cannot use must not keep the ring from starting
+                EventLog.log(Level.WARN, -1, "Cannot restore from %s, starting empty: %s", path, e);
+            }
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "checkpoint");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleWithFixedDelay(Checkpoint::writeQuietly, INTERVAL_MILLIS, INTERVAL_MILLIS,
+                                     TimeUnit.MILLISECONDS);
+        return restored;
+    }
+
+    // As write(), logging a failure instead of throwing it
+    public static void writeQuietly() {
+        try {
+            write();
+        } catch (IOException e) {
+            EventLog.log(Level.WARN, -1, "Checkpoint to %s failed: %s", FILE, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Captures the global ring and replaces the checkpoint file with it; returns the
+    // bytes written. An empty ring leaves the last checkpoint in place.
+    public static synchronized int write() throws IOException, InterruptedException {
+        RingSnapshot ring = Node.getRing();
+        if (FILE == null || ring.isEmpty()) {
+            return 0;
+        }
+        long began = System.nanoTime();
+        long capturedAt = TimeUnit.NANOSECONDS.toMillis(began);
+        Member[] members = capture(ring);
+        if (members == null || members.length == 0) {
+            return 0;
+        }
+        List<ControlToken> live = Node.getTokens();
+        long captured = System.nanoTime();
+
+        // The newest copy of each token a member held, else the token in flight
+        ControlToken[] tokens = new ControlToken[live.size()];
+        int[] holders = new int[tokens.length];
+        Arrays.fill(holders, -1);
+        long pauseNanos = 0;
+        for (Member member : members) {
+            pauseNanos = Math.max(pauseNanos, member.pauseNanos);
+            ControlToken token = member.token;
+            if (token != null && token.getId() < tokens.length
+                    && (tokens[token.getId()] == null || newer(token, tokens[token.getId()]))) {
+                tokens[token.getId()] = token;
+                holders[token.getId()] = member.id;
+            }
+        }
+        for (int id = 0; id < tokens.length; id++) {
+            if (tokens[id] == null) {
+                // In flight: its sender's copy, never the live token
+                tokens[id] = live.get(id).getSentCopy();
+                if (tokens[id] == null) {
+                    EventLog.log(Level.WARN, -1, "Checkpoint skipped: token %d is in flight with no"
+                                 + " copy taken when it was sent; keeping the last one", id);
+                    return 0;
+                }
+            }
+        }
+        // Members went on while others copied themselves; a request a token served
+        // after its member's copy must not be saved again. The stamps are read only
+        // now that every token copy is fixed: a grant stamped later is in none of them.
+        for (int i = 0; i < members.length; i++) {
+            members[i] = members[i].settle(tokens);
+        }
+        // Requests no token has queued are riding on request tokens
+        List<RequestToken> inFlight = new ArrayList<>();
+        for (Member member : members) {
+            if (member.ages.length > 0 && !queued(tokens, member.id)) {
+                RequestToken request = new RequestToken(member.id);
+                request.stamp(capturedAt);
+                if (member.due != Long.MAX_VALUE) {
+                    request.addRequest(member.id, member.due);
+                } else {
+                    request.addRequest(member.id);
+                }
+                inFlight.add(request);
+            }
+        }
+
+        ByteBuffer out = encode(capturedAt, members, tokens, holders, inFlight);
+        int bytes = out.remaining();
+        Path path = Path.of(FILE);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING,
+                                                    StandardOpenOption.WRITE)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(false);
+        }
+        // Readers see the old checkpoint or the new one, never half of one
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        long written = System.nanoTime();
+
+        long captureMicros = (captured - began) / 1000;
+        long writeMicros = (written - captured) / 1000;
+        RingMetrics.GLOBAL.checkpointed(members.length, bytes, captureMicros, pauseNanos / 1000,
+                                        writeMicros);
+        EventLog.log(Level.INFO, -1, "Checkpoint: %d nodes, %d tokens, %d requests in flight,"
+                     + " %d bytes | capture %d us (longest pause %d us), write %d us", members.length,
+                     tokens.length, inFlight.size(), bytes, captureMicros, pauseNanos / 1000,
+                     writeMicros);
+        return bytes;
+    }
+
+    // Every member copies itself on its own context, all at once; null, with a WARN,
+    // if any does not answer in time, as its requests would be missing. Members that
+    // already left the snapshot's ring are stopped and would never answer.
+    private static Member[] capture(RingSnapshot ring) throws InterruptedException {
+        List<Node> nodes = new ArrayList<>(ring.size());
+        for (int i = 0; i < ring.size(); i++) {
+            if (!ring.get(i).isDeparted()) {
+                nodes.add(ring.get(i));
+            }
+        }
+        int n = nodes.size();
+        AtomicReferenceArray<Member> copies = new AtomicReferenceArray<>(n);
+        CountDownLatch done = new CountDownLatch(n);
+        for (int i = 0; i < n; i++) {
+            final int index = i;
+            final Node node = nodes.get(i);
+            node.deliver((Runnable) () -> {
+                copies.set(index, node.capture());
+                done.countDown();
+            });
+        }
+        if (!done.await(CAPTURE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            EventLog.log(Level.WARN, -1, "Checkpoint skipped: %d of %d nodes did not copy their"
+                         + " state within %d ms; keeping the last one", done.getCount(), n,
+                         CAPTURE_TIMEOUT_MILLIS);
+            return null;
+        }
+        Member[] members = new Member[n];
+        for (int i = 0; i < n; i++) {
+            members[i] = copies.get(i);
+        }
+        return members;
+    }
+
+    private static boolean newer(ControlToken a, ControlToken b) {
+        return a.getEpoch() > b.getEpoch()
+            || (a.getEpoch() == b.getEpoch() && a.getSequence() > b.getSequence());
+    }
+
+    private static boolean queued(ControlToken[] tokens, int nodeId) {
+        for (ControlToken token : tokens) {
+            if (token.contains(nodeId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ByteBuffer encode(long capturedAt, Member[] members, ControlToken[] tokens,
+                                     int[] holders, List<RequestToken> inFlight) {
+        for (int capacity = 64 + 32 * members.length; ; capacity *= 2) {
+            ByteBuffer out = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+            try {
+                out.putInt(MAGIC);
+                out.put(VERSION);
+                WireCodec.putVarlong(out, capturedAt);
+                WireCodec.putVarint(out, members.length);
+                for (Member member : members) {
+                    WireCodec.putVarint(out, member.id);
+                    WireCodec.putVarint(out, member.ages.length);
+                    for (int i = 0; i < member.ages.length; i++) {
+                        WireCodec.putVarlong(out, member.ages[i]);
+                        out.put(member.classes[i]);
+                        long left = member.deadlines[i];
+                        long encoded = left == Long.MAX_VALUE ? 0 : Math.max(0, left) + 1;
+                        WireCodec.putVarlong(out, encoded);
+                    }
+                }
+                WireCodec.putVarint(out, tokens.length);
+                for (int id = 0; id < tokens.length; id++) {
+                    WireCodec.putVarint(out, holders[id] + 1);
+                    if (!WireCodec.encode(tokens[id], holders[id], 0, out)) {
+                        throw new BufferOverflowException();
+                    }
+                }
+                WireCodec.putVarint(out, inFlight.size());
+                for (RequestToken request : inFlight) {
+                    if (!WireCodec.encode(request, request.getOriginNodeId(), 0, out)) {
+                        throw new BufferOverflowException();
+                    }
+                }
+                out.flip();
+                return out;
+            } catch (BufferOverflowException e) {
+                // Try again in twice the space
+            }
+        }
+    }
+
+    // The body of a WireCodec frame, after its header
+    private static Object readFrame(ByteBuffer in) {
+        in.getInt();
+        byte type = in.get();
+        in.getLong();
+        WireCodec.getVarint(in);
+        return WireCodec.decode(type, in);
+    }
+
+    private static List<Node> restore(Path path, TokenTransport transport) throws IOException {
+        long began = System.nanoTime();
+        long now = TimeUnit.NANOSECONDS.toMillis(began);
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        if (in.remaining() < 5 || in.getInt() != MAGIC || in.get() != VERSION) {
+            throw new IOException("Not a checkpoint: " + path);
+        }
+        long shift = now - WireCodec.getVarlong(in);
+
+        int n = WireCodec.getVarint(in);
+        int[] ids = new int[n];
+        long[][] times = new long[n][];
+        byte[][] classes = new byte[n][];
+        long[][] deadlines = new long[n][];
+        int requests = 0;
+        for (int i = 0; i < n; i++) {
+            ids[i] = WireCodec.getVarint(in);
+            int pending = WireCodec.getVarint(in);
+            times[i] = new long[pending];
+            classes[i] = new byte[pending];
+            deadlines[i] = new long[pending];
+            for (int r = 0; r < pending; r++) {
+                times[i][r] = now - WireCodec.getVarlong(in);
+                classes[i][r] = in.get();
+                long left = WireCodec.getVarlong(in);
+                deadlines[i][r] = left == 0 ? Long.MAX_VALUE : now + left - 1;
+            }
+            requests += pending;
+        }
+
+        int maxId = 0;
+        for (int id : ids) {
+            maxId = Math.max(maxId, id);
+        }
+        int[] positions = new int[maxId + 1];
+        Arrays.fill(positions, -1);
+        for (int i = 0; i < n; i++) {
+            positions[ids[i]] = i;
+        }
+
+        int tokenCount = WireCodec.getVarint(in);
+        if (tokenCount > ProtocolConfig.DEFAULT.getTokens() || tokenCount > n) {
+            throw new IOException(tokenCount + " tokens saved for " + n + " nodes, configured for "
+                                  + ProtocolConfig.DEFAULT.getTokens());
+        }
+        // Each token goes back to its holder; one that was in flight, or whose holder
+        // got another, to the next member holding none
+        ControlToken[] tokens = new ControlToken[tokenCount];
+        ControlToken[] held = new ControlToken[n];
+        for (int id = 0; id < tokenCount; id++) {
+            int holder = WireCodec.getVarint(in) - 1;
+            tokens[id] = rebase((ControlToken) readFrame(in), shift);
+            int at = holder >= 0 && holder <= maxId ? positions[holder] : -1;
+            if (at < 0) {
+                at = (int) ((long) id * n / tokenCount);
+            }
+            while (held[at] != null) {
+                at = (at + 1) % n;
+            }
+            held[at] = tokens[id];
+        }
+        int inFlight = WireCodec.getVarint(in);
+        for (int k = 0; k < inFlight; k++) {
+            RequestToken request = (RequestToken) readFrame(in);
+            int id = request.getOriginNodeId();
+            int origin = id >= 0 && id <= maxId ? positions[id] : -1;
+            // The first token at or after the origin, which the request would have
+            // reached had it stood still
+            for (int d = 0; origin >= 0 && d < n; d++) {
+                ControlToken token = held[(origin + d) % n];
+                if (token != null) {
+                    token.addAllRequests(rebase(request.getRequests(), shift));
+                    break;
+                }
+            }
+        }
+
+        List<Node> nodes = Node.restoreRing(ids, Arrays.asList(tokens), transport);
+        for (int i = 0; i < n; i++) {
+            nodes.get(i).resume(held[i], times[i], classes[i], deadlines[i]);
+        }
+        long micros = (System.nanoTime() - began) / 1000;
+        RingMetrics.GLOBAL.restored(n, requests, micros);
+        EventLog.log(Level.INFO, -1, "Restored %d nodes, %d tokens and %d pending requests"
+                     + " (%d were in flight) from %s in %d us", n, tokenCount, requests, inFlight,
+                     path, micros);
+        return nodes;
+    }
+
+    // Due times are on the old process's clock; shift them onto ours
+    private static RequestQueue rebase(RequestQueue queue, long shift) {
+        if (!queue.isScheduled() || shift == 0) {
+            return queue;
+        }
+        RequestQueue moved = new RequestQueue(queue.size());
+        for (int id : queue.toArray()) {
+            long due = queue.getDue(id);
+            moved.add(id, due == Long.MAX_VALUE ? due : due + shift);
+        }
+        return moved;
+    }
+
+    private static ControlToken rebase(ControlToken token, long shift) {
+        if (!token.getQueue().isScheduled() || shift == 0) {
+            return token;
+        }
+        ControlToken moved = new ControlToken(token.getId(), token.getEpoch());
+        moved.restore(token.getSequence(), token.getHopsSinceGrant(), token.getGrants(),
+                      token.getBusyMillis());
+        moved.addAllRequests(rebase(token.getQueue(), shift));
+        return moved;
+    }
+}
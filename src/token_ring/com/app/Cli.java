@@ -0,0 +1,115 @@
+// Cli.java
+package com.app;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// The live ring of token_ring.ui's Main without a window, so nothing loads AWT:
+// the same global ring on the same NodeRuntime, each hop delivered after the time
+// Graph takes to animate it (token_ring.hopMillis), the protocol log on stdout.
+// Reads add, remove, status and quit from stdin; at the end prints RingMetrics.
+// With token_ring.checkpoint set the ring resumes from its checkpoint, if there is
+// one, in place of a new ring of the given size (see Checkpoint).
+// Usage: Cli [nodes] [seconds, 0 runs until quit or end of input]
+public class Cli implements TokenTransport {
+    private static final long HOP_MILLIS = Long.getLong("token_ring.hopMillis", Simulator.HOP_MILLIS);
+
+    private final ScheduledExecutorService delivery = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "token-delivery");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @Override
+    public void sendControlToken(Node from, Node to, Runnable onArrival) {
+        delivery.schedule(onArrival, HOP_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void sendRequestToken(Node from, Node to, RequestToken token, Runnable onArrival) {
+        delivery.schedule(onArrival, HOP_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private static void status() {
+        RingSnapshot ring = Node.getRing();
+        StringBuilder sb = new StringBuilder();
+        sb.append(ring.size()).append(" nodes:");
+        for (int i = 0; i < ring.size(); i++) {
+            Node node = ring.get(i);
+            sb.append(' ').append(node.getNodeId()).append('=').append(node.getState());
+            if (node.getTokenId() >= 0) {
+                sb.append("/T").append(node.getTokenId());
+            }
+        }
+        System.out.println(sb);
+        for (ControlToken token : Node.getTokens()) {
+            System.out.printf("Token %d (gen %d): %d grants, %d queued%n", token.getId(),
+                              token.getEpoch(), token.getGrants(), token.getQueue().size());
+        }
+    }
+
+    // Commands until quit or end of input
+    private void repl() throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = in.readLine()) != null) {
+            switch (line.trim()) {
+                case "add":
+                    Node.createNode(this).start();
+                    break;
+                case "remove":
+                    if (Node.removeLastNode() == null) {
+                        System.out.println("No nodes to remove!");
+                    }
+                    break;
+                case "status":
+                    status();
+                    break;
+                case "quit":
+                    return;
+                case "":
+                    break;
+                default:
+                    System.out.println("Commands: add, remove, status, quit");
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int nodes = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        long seconds = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        Node.requireRingAlgorithm();
+
+        long began = System.nanoTime();
+        Cli cli = new Cli();
+        List<Node> members = Checkpoint.resume(cli);
+        if (members.isEmpty()) {
+            members = Node.createNodes(nodes, cli);
+        }
+        for (Node node : members) {
+            node.start();
+        }
+        System.out.printf("%d nodes started in %.1f ms on %s%n", members.size(),
+                          (System.nanoTime() - began) / 1e6, Node.getRuntime());
+
+        if (seconds > 0) {
+            Thread.sleep(seconds * 1000);
+        } else {
+            cli.repl();
+        }
+        if (Checkpoint.isEnabled()) {
+            Checkpoint.write();
+        }
+        while (Node.removeLastNode() != null) {
+            // each removal stops its node
+        }
+        System.out.print(RingMetrics.GLOBAL.report());
+        System.exit(0);
+    }
+}
@@ -0,0 +1,149 @@
+// ControlToken.java
+package com.app;
+
+public class ControlToken {
+    private final int id;
+    // Generation: raised each time the token is regenerated after a loss, so a copy
+    // of an older one can be told apart and discarded
+    private int epoch;
+    // Stamped by every sender; orders sightings of one generation and exposes a
+    // copy delivered twice
+    private long sequence = 0;
+    // Hops since the last CS entry it granted, for the metrics
+    private int hopsSinceGrant = 0;
+    private final RequestQueue queue = new RequestQueue();
+    // Occupancy, written only by the holder but read by metrics and the UI
+    private volatile long grants = 0;
+    private volatile long busyMillis = 0;
+    // Checkpoints only: the token as last sent, copied on the sender's context, so a
+    // token in flight is saved without reading the live one the receiver may change
+    private volatile ControlToken sentCopy = null;
+
+    public ControlToken() {
+        this(0);
+    }
+
+    // k-token mode numbers its tokens 0..k-1
+    public ControlToken(int id) {
+        this(id, 0);
+    }
+
+    ControlToken(int id, int epoch) {
+        this.id = id;
+        this.epoch = epoch;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getEpoch() {
+        return epoch;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    // Called by the sender on every pass
+    void advance() {
+        sequence++;
+        hopsSinceGrant++;
+    }
+
+    int getHopsSinceGrant() {
+        return hopsSinceGrant;
+    }
+
+    // A copy received from another process takes over the sender's stamp and counts
+    void restore(long sequence, int hopsSinceGrant, long grants, long busyMillis) {
+        this.sequence = sequence;
+        this.hopsSinceGrant = hopsSinceGrant;
+        this.grants = grants;
+        this.busyMillis = busyMillis;
+    }
+
+    // For a checkpoint: same id, stamps, counts and queue, detached from this one
+    ControlToken copy() {
+        ControlToken copy = new ControlToken(id, epoch);
+        copy.restore(sequence, hopsSinceGrant, grants, busyMillis);
+        copy.queue.addAll(queue);
+        return copy;
+    }
+
+    void recordSent() {
+        sentCopy = copy();
+    }
+
+    // null if it was never sent with checkpoints on
+    ControlToken getSentCopy() {
+        return sentCopy;
+    }
+
+    // Hops since the previous call, at each CS entry
+    int takeHops() {
+        int hops = hopsSinceGrant;
+        hopsSinceGrant = 0;
+        return hops;
+    }
+
+    // Folds a second copy of this token into this one, keeping the newer stamp
+    void absorb(ControlToken other) {
+        queue.addAll(other.queue);
+        if (other.epoch > epoch || (other.epoch == epoch && other.sequence > sequence)) {
+            epoch = other.epoch;
+            sequence = other.sequence;
+        }
+    }
+
+    public void addRequest(int nodeId) {
+        queue.add(nodeId);
+    }
+
+    // Priority scheduling: queued by due time; an earlier one replaces a later
+    public void addRequest(int nodeId, long dueMillis) {
+        queue.add(nodeId, dueMillis);
+    }
+
+    public void addAllRequests(RequestQueue requests) {
+        queue.addAll(requests);
+    }
+
+    public int removeRequest() {
+        return queue.poll();
+    }
+
+    public boolean removeRequest(int nodeId) {
+        return queue.remove(nodeId);
+    }
+
+    public boolean hasRequests() {
+        return !queue.isEmpty();
+    }
+
+    public int peekRequest() {
+        return queue.peek();
+    }
+
+    public boolean contains(int nodeId) {
+        return queue.contains(nodeId);
+    }
+
+    // Live queue, not a copy - read it, don't modify it
+    public RequestQueue getQueue() {
+        return queue;
+    }
+
+    void recordGrant(long heldMillis) {
+        grants++;
+        busyMillis += heldMillis;
+    }
+
+    public long getGrants() { return grants; }
+    public long getBusyMillis() { return busyMillis; }
+
+    @Override
+    public String toString() {
+        return "ControlToken{id=" + id + ", epoch=" + epoch + ", seq=" + sequence + ", queue=" + queue + "}";
+    }
+}
@@ -0,0 +1,185 @@
+// EventLog.java
+package com.app;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Asynchronous protocol log. Callers only claim a preallocated slot in a bounded
+// lock-free ring and store the format and arguments; a background thread formats
+// the entries in batches and hands each batch to the sinks. When the ring is full
+// entries are dropped and counted rather than slowing the protocol down.
+// Arguments are formatted later on the log thread, so callers pass numbers, strings
+// and other values that do not change; a token or queue goes in as its string.
+//
+// -Dtoken_ring.logLevel=DEBUG|INFO|WARN|OFF picks what is recorded (INFO by default;
+// DEBUG includes every token hop), -Dtoken_ring.logFile=path adds a file sink.
+public final class EventLog {
+    public enum Level { DEBUG, INFO, WARN, OFF }
+
+    public interface Sink {
+        // Called on the log thread with one or more complete lines
+        void write(CharSequence batch);
+    }
+
+    private static final int CAPACITY = 1 << 13;
+    private static final int MASK = CAPACITY - 1;
+    private static final long DRAIN_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final Entry[] ring = new Entry[CAPACITY];
+    private static final AtomicLong tail = new AtomicLong();
+    private static final AtomicLong dropped = new AtomicLong();
+    private static final List<Sink> sinks = new CopyOnWriteArrayList<>();
+    private static volatile Level level =
+        Level.valueOf(System.getProperty("token_ring.logLevel", "INFO"));
+    private static long head = 0;  // log thread only
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            ring[i] = new Entry(i);
+        }
+        String file = System.getProperty("token_ring.logFile");
+        if (file != null) {
+            sinks.add(new FileSink(Path.of(file)));
+        }
+        Thread drainer = new Thread(EventLog::drainLoop, "event-log");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    private EventLog() { }
+
+    public static boolean isEnabled(Level l) {
+        return l != Level.OFF && l.compareTo(level) >= 0;
+    }
+
+    public static void setLevel(Level l) { level = l; }
+    public static Level getLevel() { return level; }
+    public static long getDropped() { return dropped.get(); }
+
+    public static void addSink(Sink sink) { sinks.add(sink); }
+    public static void removeSink(Sink sink) { sinks.remove(sink); }
+
+    // nodeId < 0 for messages that don't belong to a node
+    public static void log(Level l, int nodeId, String format, Object... args) {
+        if (!isEnabled(l)) {
+            return;
+        }
+        while (true) {
+            long t = tail.get();
+            Entry entry = ring[(int) t & MASK];
+            long seq = entry.sequence;
+            if (seq == t) {
+                if (tail.compareAndSet(t, t + 1)) {
+                    entry.nodeId = nodeId;
+                    entry.format = format;
+                    entry.args = args;
+                    entry.sequence = t + 1;  // publish
+                    return;
+                }
+            } else if (seq < t) {
+                // Log thread is a full ring behind
+                dropped.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    private static void drainLoop() {
+        StringBuilder batch = new StringBuilder(4096);
+        long reportedDrops = 0;
+        while (true) {
+            while (true) {
+                Entry entry = ring[(int) head & MASK];
+                if (entry.sequence != head + 1) {
+                    break;
+                }
+                if (entry.nodeId >= 0) {
+                    batch.append("[Node-").append(entry.nodeId).append("] ");
+                }
+                try {
+                    batch.append(String.format(entry.format, entry.args));
+                } catch (RuntimeException e) {
+                    batch.append(entry.format).append(" <").append(e).append('>');
+                }
+                batch.append('\n');
+                entry.format = null;
+                entry.args = null;
+                entry.sequence = head + CAPACITY;  // hand the slot back to producers
+                head++;
+            }
+            long drops = dropped.get();
+            if (drops != reportedDrops) {
+                batch.append("[EventLog] Dropped ").append(drops - reportedDrops)
+                     .append(" entries").append('\n');
+                reportedDrops = drops;
+            }
+            if (batch.length() > 0) {
+                publish(batch);
+                batch.setLength(0);
+            }
+            LockSupport.parkNanos(DRAIN_NANOS);
+        }
+    }
+
+    private static void publish(CharSequence batch) {
+        if (sinks.isEmpty()) {
+            System.out.print(batch);
+            System.out.flush();
+            return;
+        }
+        for (Sink sink : sinks) {
+            try {
+                sink.write(batch);
+            } catch (RuntimeException e) {
+                // One broken sink must not stop the others or the log thread
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static final class Entry {
+        volatile long sequence;
+        int nodeId;
+        String format;
+        Object[] args;
+
+        Entry(long sequence) {
+            this.sequence = sequence;
+        }
+    }
+
+    // Appends to a file from the log thread itself, one write and flush per batch
+    static final class FileSink implements Sink {
+        private final BufferedWriter writer;
+
+        FileSink(Path path) {
+            try {
+                writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                                                 StandardOpenOption.CREATE,
+                                                 StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot open log file " + path, e);
+            }
+        }
+
+        @Override
+        public void write(CharSequence batch) {
+            try {
+                writer.append(batch);
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+// IntSet.java
+package com.app;
+
+import java.util.Arrays;
+
+// Open-addressing set of non-negative ints. Its size follows how many values it
+// holds, not the largest one like RequestQueue's bitset, so every node of a large
+// ring can afford one.
+final class IntSet {
+    private static final int FREE = -1;
+
+    private int[] slots;
+    private int size = 0;
+
+    IntSet(int capacity) {
+        // At most half full
+        slots = new int[Integer.highestOneBit(Math.max(capacity, 4) - 1) << 2];
+        Arrays.fill(slots, FREE);
+    }
+
+    boolean add(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value: " + value);
+        }
+        if (2 * (size + 1) > slots.length) {
+            grow();
+        }
+        int mask = slots.length - 1;
+        int i = hash(value) & mask;
+        while (slots[i] != FREE) {
+            if (slots[i] == value) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        slots[i] = value;
+        size++;
+        return true;
+    }
+
+    boolean contains(int value) {
+        int mask = slots.length - 1;
+        int i = hash(value) & mask;
+        while (slots[i] != FREE) {
+            if (slots[i] == value) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    void clear() {
+        if (size > 0) {
+            Arrays.fill(slots, FREE);
+            size = 0;
+        }
+    }
+
+    int size() { return size; }
+
+    private void grow() {
+        int[] old = slots;
+        slots = new int[old.length * 2];
+        Arrays.fill(slots, FREE);
+        size = 0;
+        for (int value : old) {
+            if (value != FREE) {
+                add(value);
+            }
+        }
+    }
+
+    private static int hash(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,98 @@
+// LatencyHistogram.java
+package com.app;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Log-linear histogram of non-negative values, HdrHistogram style: exact below
+// 128, above that 64 buckets per power of two, so every value is recorded within
+// about 1.6% in a fixed 30 KB however long the run. Lock-free: node threads record
+// into one histogram concurrently with plain atomic adds. A read while others
+// record sees each bucket's latest count, not one instant across all of them.
+public final class LatencyHistogram {
+    private static final int SUB_BUCKETS = 64;
+    private static final int BUCKETS = 58 * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value: " + value);
+        }
+        counts.getAndIncrement(index(value));
+        count.increment();
+        sum.add(value);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = other.counts.get(i);
+            if (c != 0) {
+                counts.getAndAdd(i, c);
+            }
+        }
+        count.add(other.count.sum());
+        sum.add(other.sum.sum());
+        max.accumulateAndGet(other.max.get(), Math::max);
+    }
+
+    public long getCount() { return count.sum(); }
+    public long getMax() { return max.get(); }
+
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : sum.sum() / (double) n;
+    }
+
+    // Smallest bucket bound at or below which the given percent of values fall
+    public long percentile(double percent) {
+        long n = count.sum();
+        long top = max.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percent / 100 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(top, highestIn(i));
+            }
+        }
+        return top;
+    }
+
+    // One line: count, mean and the usual percentiles
+    public String summary() {
+        return String.format(Locale.ROOT, "n=%d mean=%.1f p50=%d p90=%d p99=%d p99.9=%d max=%d",
+                             getCount(), getMean(), percentile(50), percentile(90), percentile(99),
+                             percentile(99.9), getMax());
+    }
+
+    // Values below 128 map to themselves; above, the top 7 significant bits pick
+    // one of 64 sub-buckets of the value's power of two
+    private static int index(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - 6;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    private static long highestIn(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long sub = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+}
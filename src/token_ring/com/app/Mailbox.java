@@ -0,0 +1,52 @@
+// Mailbox.java
+package com.app;
+
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+// Unbounded lock-free inbox of a node: any thread may offer, only the node itself
+// polls. Tokens must never be dropped and a sender must never block on a busy
+// node, so there is no bound; messages come out in the order they were offered.
+// A linked multi-producer, single-consumer queue: a producer swaps its link in as
+// the tail, then links the previous tail to it.
+final class Mailbox {
+    private static final AtomicReferenceFieldUpdater<Mailbox, Link> TAIL =
+        AtomicReferenceFieldUpdater.newUpdater(Mailbox.class, Link.class, "tail");
+
+    private static final class Link {
+        Object message;
+        volatile Link next;
+
+        Link(Object message) {
+            this.message = message;
+        }
+    }
+
+    private volatile Link tail;  // last link offered
+    private Link head;           // consumer only: the link before the next message
+
+    Mailbox() {
+        head = tail = new Link(null);
+    }
+
+    void offer(Object message) {
+        Link link = new Link(message);
+        TAIL.getAndSet(this, link).next = link;
+    }
+
+    // Returns null when empty. A message whose producer has swapped in its link but
+    // not yet linked it also reads as empty; that producer wakes the node right after.
+    Object poll() {
+        Link next = head.next;
+        if (next == null) {
+            return null;
+        }
+        head = next;
+        Object message = next.message;
+        next.message = null;
+        return message;
+    }
+
+    boolean isEmpty() {
+        return head.next == null;
+    }
+}
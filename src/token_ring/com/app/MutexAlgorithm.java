@@ -0,0 +1,20 @@
+// MutexAlgorithm.java
+package com.app;
+
+// How a node wins the right to enter the CS. Node keeps what every algorithm
+// shares: the local requests and their waits, CS entry and exit, the transport and
+// the metrics. The algorithm decides who gets the privilege next and moves it
+// there. One instance per node, only ever called on that node's context.
+interface MutexAlgorithm {
+    // The node's first outstanding request; call Node.grant() once it may enter
+    void request();
+
+    // The node left the CS still holding the privilege; hand it on if anyone waits
+    void release();
+
+    // A delivery from another node; false if it is not one of this algorithm's
+    boolean receive(Object message);
+
+    // A poll tick while the node is not in the CS
+    void poll();
+}
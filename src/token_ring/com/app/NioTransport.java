@@ -0,0 +1,427 @@
+// NioTransport.java
+package com.app;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.app.EventLog.Level;
+
+// Carries tokens between ring members in different processes on one host. Member i
+// listens on 127.0.0.1 at token_ring.basePort + i (default 47000); a member hosted
+// elsewhere is a stub Node whose deliveries come here (see Node.setRemote) and go
+// out as WireCodec frames. One selector thread does all socket work: senders only
+// queue the token and wake it, and whatever is queued for a peer by the time it
+// runs goes out in one write. Connections open on first use, retrying for
+// token_ring.connectTimeoutMillis while the peer process starts up.
+//
+// Hop latency runs from the send call to the frame being decoded at the receiver,
+// queueing and batching included. System.nanoTime is the host's monotonic clock,
+// so the two ends can be compared.
+final class NioTransport implements TokenTransport, Closeable {
+    static final int BASE_PORT = Integer.getInteger("token_ring.basePort", 47000);
+    private static final long CONNECT_TIMEOUT_MILLIS =
+        Long.getLong("token_ring.connectTimeoutMillis", 10_000);
+    private static final long RETRY_MILLIS = 100;
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final InetAddress LOOPBACK = InetAddress.getLoopbackAddress();
+
+    private final Selector selector;
+    // Members hosted in this process, by id
+    private final Map<Integer, Node> locals = new ConcurrentHashMap<>();
+    private final Map<Integer, Peer> peers = new ConcurrentHashMap<>();
+    // Peers with newly queued tokens, for the selector thread
+    private final Queue<Peer> ready = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    // Selector thread only: peers waiting to retry a refused connection
+    private final List<Peer> retrying = new ArrayList<>();
+    private volatile boolean open = true;
+    private Thread thread;
+
+    private final LatencyHistogram hopMicros = new LatencyHistogram();
+    private final LongAdder framesSent = new LongAdder();
+    private final LongAdder framesReceived = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    NioTransport() throws IOException {
+        selector = Selector.open();
+    }
+
+    // Listens for tokens addressed to node; call before start()
+    void host(Node node) throws IOException {
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(LOOPBACK, BASE_PORT + node.getNodeId()));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        locals.put(node.getNodeId(), node);
+    }
+
+    void start() {
+        thread = new Thread(this::loop, "nio-transport");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // A stub's hops are done once the token is queued here; local ones arrive directly
+    @Override
+    public void sendControlToken(Node from, Node to, Runnable onArrival) {
+        onArrival.run();
+    }
+
+    @Override
+    public void sendRequestToken(Node from, Node to, RequestToken token, Runnable onArrival) {
+        onArrival.run();
+    }
+
+    // Queues a message for the member with this id in another process
+    void send(int nodeId, Object message) {
+        if (message instanceof Runnable) {
+            // Only tokens cross processes; the ring of rings does not
+            EventLog.log(Level.WARN, nodeId, "Cannot send %s to another process, dropped", message);
+            dropped.increment();
+            return;
+        }
+        Peer peer = peers.computeIfAbsent(nodeId, Peer::new);
+        peer.queue.add(new Outgoing(message, System.nanoTime()));
+        if (peer.queued.compareAndSet(false, true)) {
+            ready.add(peer);
+            if (wakeupPending.compareAndSet(false, true)) {
+                selector.wakeup();
+            }
+        }
+    }
+
+    private void loop() {
+        while (open) {
+            try {
+                selector.select(retrying.isEmpty() ? 0 : RETRY_MILLIS);
+                wakeupPending.set(false);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+                Peer peer;
+                while ((peer = ready.poll()) != null) {
+                    peer.queued.set(false);
+                    flush(peer);
+                }
+                retryConnections();
+            } catch (IOException e) {
+                if (open) {
+                    EventLog.log(Level.WARN, -1, "Transport selector failed: %s", e);
+                }
+            }
+        }
+    }
+
+    private void handle(SelectionKey key) throws IOException {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            SocketChannel channel = ((ServerSocketChannel) key.channel()).accept();
+            if (channel != null) {
+                channel.configureBlocking(false);
+                channel.register(selector, SelectionKey.OP_READ, new Inbound());
+            }
+        } else if (key.isReadable()) {
+            read(key, (Inbound) key.attachment());
+        } else if (key.isConnectable()) {
+            Peer peer = (Peer) key.attachment();
+            try {
+                peer.channel.finishConnect();
+                key.interestOps(0);
+                peer.connectFailedAt = -1;
+                flush(peer);
+            } catch (IOException e) {
+                connectFailed(peer, e);
+            }
+        } else if (key.isWritable()) {
+            flush((Peer) key.attachment());
+        }
+    }
+
+    private void connect(Peer peer) {
+        try {
+            SocketChannel channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            peer.channel = channel;
+            if (channel.connect(new InetSocketAddress(LOOPBACK, BASE_PORT + peer.nodeId))) {
+                // Writable at once, which flushes the queue
+                channel.register(selector, SelectionKey.OP_WRITE, peer);
+                peer.connectFailedAt = -1;
+            } else {
+                channel.register(selector, SelectionKey.OP_CONNECT, peer);
+            }
+        } catch (IOException e) {
+            connectFailed(peer, e);
+        }
+    }
+
+    // Tried again every RETRY_MILLIS until the timeout, then the queued tokens go
+    private void connectFailed(Peer peer, IOException e) {
+        closeChannel(peer);
+        long now = System.nanoTime();
+        if (peer.connectFailedAt < 0) {
+            peer.connectFailedAt = now;
+        }
+        if (now - peer.connectFailedAt < TimeUnit.MILLISECONDS.toNanos(CONNECT_TIMEOUT_MILLIS)) {
+            peer.retryAt = now + TimeUnit.MILLISECONDS.toNanos(RETRY_MILLIS);
+            retrying.add(peer);
+            return;
+        }
+        int lost = 0;
+        while (peer.queue.poll() != null) {
+            lost++;
+        }
+        dropped.add(lost);
+        peer.connectFailedAt = -1;
+        EventLog.log(Level.WARN, peer.nodeId, "Cannot reach Node-%d (%s), dropped %d tokens",
+                     peer.nodeId, e, lost);
+    }
+
+    private void retryConnections() {
+        long now = System.nanoTime();
+        for (Iterator<Peer> it = retrying.iterator(); it.hasNext(); ) {
+            Peer peer = it.next();
+            if (now - peer.retryAt >= 0) {
+                it.remove();
+                connect(peer);
+            }
+        }
+    }
+
+    // Encodes everything queued for the peer that fits and writes it in one go
+    private void flush(Peer peer) {
+        if (peer.channel == null) {
+            if (!retrying.contains(peer)) {
+                connect(peer);
+            }
+            return;
+        }
+        if (!peer.channel.isConnected()) {
+            return;  // finishConnect flushes
+        }
+        ByteBuffer out = peer.out;
+        Outgoing next;
+        while ((next = peer.queue.peek()) != null) {
+            int start = out.position();
+            if (!WireCodec.encode(next.message, peer.nodeId, next.sentNanos, out)) {
+                if (out.position() > 0) {
+                    break;  // full; the rest goes once this is written
+                }
+                out = peer.out = grow(out, out.capacity() * 2);
+                continue;
+            }
+            peer.queue.poll();
+            peer.frameBytes.add(out.position() - start);
+        }
+        out.flip();
+        try {
+            int n = peer.channel.write(out);
+            bytesSent.add(n);
+            writes.increment();
+            framesWritten(peer, n);
+        } catch (IOException e) {
+            // The frames in the buffer left the queue already and go with the connection
+            int lost = peer.frameBytes.size();
+            dropped.add(lost);
+            EventLog.log(Level.WARN, peer.nodeId,
+                         "Lost connection to Node-%d, dropped %d tokens: %s", peer.nodeId, lost, e);
+            peer.frameBytes.clear();
+            peer.headWritten = 0;
+            out.clear();
+            closeChannel(peer);
+            if (!peer.queue.isEmpty()) {
+                connect(peer);
+            }
+            return;
+        }
+        out.compact();
+        boolean more = out.position() > 0 || !peer.queue.isEmpty();
+        SelectionKey key = peer.channel.keyFor(selector);
+        if (key != null && key.isValid()) {
+            key.interestOps(more ? SelectionKey.OP_WRITE : 0);
+        }
+    }
+
+    // A frame counts as sent once its last byte is written
+    private void framesWritten(Peer peer, int n) {
+        int written = peer.headWritten + n;
+        Integer head;
+        while ((head = peer.frameBytes.peek()) != null && head <= written) {
+            written -= peer.frameBytes.poll();
+            framesSent.increment();
+        }
+        peer.headWritten = written;
+    }
+
+    private void read(SelectionKey key, Inbound inbound) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        int n;
+        try {
+            n = channel.read(inbound.in);
+        } catch (IOException e) {
+            n = -1;
+        }
+        if (n < 0) {
+            key.cancel();
+            channel.close();
+            return;
+        }
+        bytesReceived.add(n);
+        ByteBuffer in = inbound.in;
+        in.flip();
+        while (in.remaining() >= 4) {
+            int length = in.getInt(in.position());
+            if (in.remaining() < 4 + length) {
+                if (4 + length > in.capacity()) {
+                    in.compact();
+                    in = inbound.in = grow(in, 4 + length);
+                    in.flip();
+                }
+                break;
+            }
+            int end = in.position() + 4 + length;
+            in.position(in.position() + 4);
+            byte type = in.get();
+            long sentNanos = in.getLong();
+            int target = WireCodec.getVarint(in);
+            Object message = WireCodec.decode(type, in);
+            in.position(end);
+            framesReceived.increment();
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sentNanos);
+            hopMicros.record(Math.max(0, micros));
+            dispatch(target, message);
+        }
+        in.compact();
+    }
+
+    private void dispatch(int target, Object message) {
+        Node node = locals.get(target);
+        if (node == null) {
+            EventLog.log(Level.WARN, target, "Received %s for Node-%d, not hosted here", message,
+                         target);
+            dropped.increment();
+        } else if (message instanceof ControlToken) {
+            node.receiveControlToken((ControlToken) message);
+        } else {
+            node.forwardRequestToken((RequestToken) message);
+        }
+    }
+
+    // A bigger buffer with the same contents; both being filled
+    private static ByteBuffer grow(ByteBuffer buffer, int capacity) {
+        ByteBuffer bigger = ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.flip();
+        bigger.put(buffer);
+        return bigger;
+    }
+
+    private void closeChannel(Peer peer) {
+        SocketChannel channel = peer.channel;
+        peer.channel = null;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Going anyway
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        open = false;
+        selector.wakeup();
+        if (thread != null) {
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+    }
+
+    public LatencyHistogram getHopMicros() { return hopMicros; }
+    public long getFramesSent() { return framesSent.sum(); }
+    public long getFramesReceived() { return framesReceived.sum(); }
+    public long getBytesSent() { return bytesSent.sum(); }
+    public long getBytesReceived() { return bytesReceived.sum(); }
+    public long getDropped() { return dropped.sum(); }
+
+    public String report() {
+        long frames = getFramesSent();
+        return String.format(Locale.ROOT,
+                             "  %-20s %s%n  %-20s %d sent, %d received, %d dropped, %.1f per write%n"
+                             + "  %-20s %d sent, %d received, %.1f per frame sent%n",
+                             "hop latency us", hopMicros.summary(),
+                             "frames", frames, getFramesReceived(), getDropped(),
+                             frames / (double) Math.max(1, writes.sum()),
+                             "bytes", getBytesSent(), getBytesReceived(),
+                             getBytesSent() / (double) Math.max(1, frames));
+    }
+
+    private static final class Outgoing {
+        final Object message;
+        final long sentNanos;
+
+        Outgoing(Object message, long sentNanos) {
+            this.message = message;
+            this.sentNanos = sentNanos;
+        }
+    }
+
+    private static final class Peer {
+        final int nodeId;
+        final Queue<Outgoing> queue = new ConcurrentLinkedQueue<>();
+        // In the ready queue already
+        final AtomicBoolean queued = new AtomicBoolean();
+        // The rest is selector thread only
+        SocketChannel channel;
+        ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        // Length of each frame in out, and how much of the first is written
+        final ArrayDeque<Integer> frameBytes = new ArrayDeque<>();
+        int headWritten;
+        long connectFailedAt = -1;
+        long retryAt = 0;
+
+        Peer(int nodeId) {
+            this.nodeId = nodeId;
+        }
+    }
+
+    private static final class Inbound {
+        ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
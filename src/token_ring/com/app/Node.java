@@ -0,0 +1,1467 @@
+// Node.java
+package com.app;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import com.app.EventLog.Level;
+import com.app.ProtocolConfig.Routing;
+import com.app.Trace.Kind;
+import com.app.workload.HoldTime;
+
+public class Node implements Runnable {
+    private static final AtomicInteger idCounter = new AtomicInteger(0);
+    // Current membership; replaced, never modified, under membershipLock
+    private static volatile RingSnapshot ring = RingSnapshot.EMPTY;
+    private static final Object membershipLock = new Object();
+    // Control tokens of the global ring; the first k members to join mint one each
+    private static final List<ControlToken> tokens = new CopyOnWriteArrayList<>();
+    private static volatile NodeRuntime runtime = NodeRuntime.fromSystemProperty();
+    
+    private final int nodeId;
+    private volatile NodeState state = NodeState.IDLE;
+    private final TokenTransport transport;
+    private final ProtocolConfig config;
+    private final MutexAlgorithm algorithm;
+    private final boolean verbose;
+    private volatile boolean running = false;
+    private volatile Node nextNode;
+    // Membership of a ring built outside the global one (the Simulator's)
+    private RingSnapshot detachedRing = null;
+    // Ring of rings: the leader of our sub-ring, and for leaders the next leader on
+    // the top ring. A leader keeps its sub-ring's token parked until the global
+    // token arrives, sends it round once, then passes the global token on.
+    private Node groupLeader = null;
+    private Node nextLeader = null;
+    private boolean holdsGlobalToken = false;
+    private boolean lapStarted = false;
+    // Leaders: requests that came in while the token was out on its lap
+    private RequestQueue heldRequests = null;
+    // Local requests not yet served, with the time each was made, its Priority and
+    // deadline (Long.MAX_VALUE for none), oldest first
+    private long[] requestTimes = new long[4];
+    private byte[] requestClasses = new byte[4];
+    private long[] requestDeadlines = new long[4];
+    private int requestHead = 0;
+    private int pendingRequests = 0;
+    private ControlToken controlToken = null;
+    
+    private final Mailbox mailbox = new Mailbox();
+    private volatile NodeDriver driver = null;
+    private volatile int drainScheduled = 0;
+    // Dedicated-thread runtime only: pending timers, soonest first
+    private volatile Thread thread;
+    private PriorityQueue<TimedTask> timers = null;
+    
+    // Request coalescing: IDs this node has sent on since the control token last
+    // passed, so a request token carrying nothing new can be dropped here. Best
+    // effort: forgotten once it would exceed FORWARDED_MEMORY IDs.
+    private IntSet forwardedRequests = null;
+    // Our request rides on a token in flight, so we need not send one of our own
+    private boolean requestCarried = false;
+    // Direct routing: where this node last sent the control token. Request tokens
+    // follow it instead of chasing the token round the whole ring.
+    private Node lastTokenTarget = null;
+    // Batching: CS entries granted since the token arrived, and when the first began
+    private int grantsThisVisit = 0;
+    private long visitStart = 0;
+    // Message counters, only touched on the node's own context
+    private long requestTokensCreated = 0;
+    private long requestTokensSuppressed = 0;
+    private long requestsPiggybacked = 0;
+    private long csEntries = 0;
+    private long csEnteredAt = 0;
+    private long totalWaitMillis = 0;
+    private long maxWaitMillis = 0;
+    // Where waits, rotations and message counts go; the Simulator has its own
+    private RingMetrics metrics = RingMetrics.GLOBAL;
+    // When each control token last reached this node, by id, -1 before it first did
+    private long[] tokenVisitedAt = null;
+    // CS durations, drawn one ahead so the batching budget knows the next one;
+    // config.getCsMillis() for every entry when unset
+    private HoldTime holdTime = null;
+    private long nextHoldMillis = -1;
+    private long claimsStarted = 0;
+    private long tokensRegenerated = 0;
+    private long staleTokensDropped = 0;
+    
+    // Token-loss detection, flat rings only: when each control token was last seen
+    // here, and the newest generation and sequence received, indexed by token id
+    private long[] tokenSeenAt = null;
+    private int[] tokenEpochs = null;
+    private long[] tokenSequences = null;
+    private boolean lossCheckArmed = false;
+    // Our claim in flight, if any, and when it set out
+    private boolean claiming = false;
+    private long claimRound = 0;
+    private long claimStartedAt = 0;
+    // Control tokens of a ring built outside the global one, indexed by id
+    private List<ControlToken> detachedTokens = null;
+    // Left the ring; tokens still addressed here are passed on
+    private volatile boolean departed = false;
+    // Set on a stand-in for a member in another process: what is delivered here goes
+    // there instead, see NioTransport
+    private volatile Consumer<Object> remote = null;
+    // The last copy a Checkpoint took of us; grants after it are stamped on it
+    private Checkpoint.Member captured = null;
+    
+    // Tunable from the command line so large headless rings can poll faster
+    static final double REQUEST_PROBABILITY =
+        Double.parseDouble(System.getProperty("token_ring.requestProbability", "0.1"));
+    static final long POLL_MILLIS = Long.getLong("token_ring.pollMillis", 1000);
+    // Local requests a node can have outstanding; polls add no more beyond this
+    static final int MAX_PENDING_REQUESTS = Integer.getInteger("token_ring.maxPendingRequests", 1);
+    // Live runs: token_ring.seed makes every node's polls and hold times repeatable,
+    // token_ring.holdTime (a HoldTime spec) replaces the fixed CS duration
+    private static final Long SEED = Long.getLong("token_ring.seed");
+    private static final String HOLD_TIME = System.getProperty("token_ring.holdTime");
+    private static final int FORWARDED_MEMORY = 256;
+    
+    private static final AtomicIntegerFieldUpdater<Node> DRAIN_SCHEDULED =
+        AtomicIntegerFieldUpdater.newUpdater(Node.class, "drainScheduled");
+    
+    // Dedicated thread per node: wake by unparking, timers fire from run()
+    private static final NodeDriver THREAD_DRIVER = new NodeDriver() {
+        @Override
+        public void wake(Node node) {
+            LockSupport.unpark(node.thread);
+        }
+
+        @Override
+        public void schedule(Node node, long millis, Runnable task) {
+            if (node.timers == null) {
+                node.timers = new PriorityQueue<>();
+            }
+            node.timers.add(new TimedTask(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis), task));
+        }
+
+        @Override
+        public long nowMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+        }
+    };
+    
+    private static final class TimedTask implements Comparable<TimedTask> {
+        final long deadline;
+        final Runnable task;
+
+        TimedTask(long deadline, Runnable task) {
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        @Override
+        public int compareTo(TimedTask other) {
+            return Long.signum(deadline - other.deadline);
+        }
+    }
+    
+    public enum NodeState {
+        IDLE,
+        REQUESTING,
+        HAS_TOKEN,
+        IN_CS
+    }
+
+    public Node(TokenTransport transport) {
+        this(idCounter.getAndIncrement(), transport, ProtocolConfig.DEFAULT, true);
+    }
+
+    // Used by the headless Simulator, which numbers its own nodes and keeps them quiet
+    Node(int nodeId, TokenTransport transport, ProtocolConfig config, boolean verbose) {
+        this.nodeId = nodeId;
+        this.transport = transport;
+        this.config = config;
+        this.verbose = verbose;
+        this.algorithm = createAlgorithm(config.getAlgorithm());
+        log(Level.INFO, "Created");
+    }
+
+    private MutexAlgorithm createAlgorithm(ProtocolConfig.Algorithm kind) {
+        switch (kind) {
+            case SUZUKI_KASAMI: return new SuzukiKasami(this);
+            case RAYMOND: return new Raymond(this);
+            default: return new TokenRing();
+        }
+    }
+
+    // The global ring changes membership, which only the ring algorithm handles:
+    // SuzukiKasami and Raymond index their state by ring position and pass a
+    // privilege that a departing member cannot hand on as a bare token
+    public static void requireRingAlgorithm() {
+        ProtocolConfig.Algorithm algorithm = ProtocolConfig.DEFAULT.getAlgorithm();
+        if (algorithm != ProtocolConfig.Algorithm.RING) {
+            throw new IllegalArgumentException("The live ring runs the ring algorithm, not "
+                                               + algorithm);
+        }
+    }
+
+    // Joins a new node at the end of the ring, just before the first node
+    public static Node createNode(TokenTransport transport) {
+        requireRingAlgorithm();
+        synchronized (membershipLock) {
+            RingSnapshot current = ring;
+            return insert(current, current.size(), new Node(transport));
+        }
+    }
+
+    // Joins a new node directly after predecessor
+    public static Node insertAfter(Node predecessor, TokenTransport transport) {
+        requireRingAlgorithm();
+        synchronized (membershipLock) {
+            RingSnapshot current = ring;
+            int index = current.indexOf(predecessor);
+            if (index < 0) {
+                throw new IllegalArgumentException("Node-" + predecessor.nodeId + " is not in the ring");
+            }
+            return insert(current, index + 1, new Node(transport));
+        }
+    }
+
+    // Joins count nodes at the end of the ring with one published snapshot
+    public static List<Node> createNodes(int count, TokenTransport transport) {
+        requireRingAlgorithm();
+        synchronized (membershipLock) {
+            RingSnapshot current = ring;
+            Node[] nodes = new Node[count];
+            for (int i = 0; i < count; i++) {
+                nodes[i] = new Node(transport);
+            }
+            for (int i = 0; i + 1 < count; i++) {
+                nodes[i].nextNode = nodes[i + 1];
+            }
+            if (count > 0) {
+                Node first = current.isEmpty() ? nodes[0] : current.get(0);
+                nodes[count - 1].nextNode = first;
+                if (!current.isEmpty()) {
+                    current.get(current.size() - 1).nextNode = nodes[0];
+                }
+            }
+            ring = current.withAppended(nodes);
+            for (int i = 0; i < count; i++) {
+                nodes[i].trace(Kind.JOIN, -1, -1, current.size() + i, 0);
+            }
+            for (int i = 0; i < count && tokens.size() < ProtocolConfig.DEFAULT.getTokens(); i++) {
+                tokens.add(nodes[i].grantInitialToken(tokens.size()));
+            }
+            return Collections.unmodifiableList(Arrays.asList(nodes));
+        }
+    }
+
+    // Caller holds membershipLock. Rewires only the predecessor: O(1) besides the copy.
+    private static Node insert(RingSnapshot current, int index, Node node) {
+        if (current.isEmpty()) {
+            node.nextNode = node;
+        } else {
+            Node predecessor = current.get((index - 1 + current.size()) % current.size());
+            node.nextNode = predecessor.nextNode;
+            predecessor.nextNode = node;
+        }
+        ring = current.withInserted(index, node);
+        node.trace(Kind.JOIN, -1, -1, index, 0);
+        
+        if (tokens.size() < ProtocolConfig.DEFAULT.getTokens()) {
+            tokens.add(node.grantInitialToken(tokens.size()));
+        }
+        return node;
+    }
+
+    // Replay: publishes a ring TraceReplay rebuilt from a trace in place of a live one
+    static void showReplay(Node[] members, List<ControlToken> replayTokens) {
+        synchronized (membershipLock) {
+            ring = ring.withMembers(members);
+            tokens.clear();
+            tokens.addAll(replayTokens);
+        }
+    }
+
+    void restore(NodeState restoredState, ControlToken token) {
+        state = restoredState;
+        controlToken = token;
+    }
+
+    // Warm restart: publishes the members a Checkpoint saved, with their ids, and its
+    // tokens as the global ring; the ring must be empty. Nothing is started.
+    static List<Node> restoreRing(int[] ids, List<ControlToken> restoredTokens,
+                                  TokenTransport transport) {
+        synchronized (membershipLock) {
+            RingSnapshot current = ring;
+            if (!current.isEmpty()) {
+                throw new IllegalStateException("Cannot restore into a ring of " + current.size());
+            }
+            Node[] nodes = new Node[ids.length];
+            int maxId = -1;
+            for (int i = 0; i < ids.length; i++) {
+                nodes[i] = new Node(ids[i], transport, ProtocolConfig.DEFAULT, true);
+                maxId = Math.max(maxId, ids[i]);
+            }
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i].nextNode = nodes[(i + 1) % nodes.length];
+            }
+            // New members never reuse a restored id
+            idCounter.accumulateAndGet(maxId + 1, Math::max);
+            ring = current.withAppended(nodes);
+            tokens.clear();
+            tokens.addAll(restoredTokens);
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i].trace(Kind.JOIN, -1, -1, i, 0);
+            }
+            return Collections.unmodifiableList(Arrays.asList(nodes));
+        }
+    }
+
+    // Warm restart, before start(): our saved requests (made at times, on the node
+    // clock) and the token we held. Checkpoint has queued every request on a token
+    // already, so none has to be sent again.
+    void resume(ControlToken token, long[] times, byte[] classes, long[] deadlines) {
+        for (int i = 0; i < times.length; i++) {
+            addLocalRequest(times[i], Priority.of(classes[i]), deadlines[i]);
+        }
+        controlToken = token;
+        requestCarried = isRequesting();
+        if (token != null) {
+            state = NodeState.HAS_TOKEN;
+            trace(Kind.ACCEPT, token.getId(), -1, token.getQueue().size(), token.getSequence());
+        } else if (isRequesting()) {
+            state = NodeState.REQUESTING;
+            // The token may have been lost with the old process
+            deliver((Runnable) this::armLossCheck);
+        }
+    }
+
+    // Checkpoint: a copy of our requests and held token, taken on our own context
+    Checkpoint.Member capture() {
+        long began = System.nanoTime();
+        long now = driver.nowMillis();
+        int n = pendingRequests;
+        long[] ages = new long[n];
+        byte[] classes = new byte[n];
+        long[] deadlines = new long[n];
+        long[] dues = new long[n];
+        for (int i = 0; i < n; i++) {
+            int at = (requestHead + i) % requestTimes.length;
+            ages[i] = now - requestTimes[at];
+            classes[i] = requestClasses[at];
+            deadlines[i] = requestDeadlines[at] == Long.MAX_VALUE
+                ? Long.MAX_VALUE : requestDeadlines[at] - now;
+            dues[i] = config.isPriorityScheduling() ? due(at) : Long.MAX_VALUE;
+        }
+        ControlToken token = controlToken == null ? null : controlToken.copy();
+        captured = new Checkpoint.Member(nodeId, ages, classes, deadlines, dues, token,
+                                         System.nanoTime() - began);
+        return captured;
+    }
+
+    ControlToken grantInitialToken(int tokenId) {
+        controlToken = new ControlToken(tokenId);
+        state = NodeState.HAS_TOKEN;
+        log(Level.INFO, "Initial control token created | %s", controlToken);
+        return controlToken;
+    }
+
+    void setNextNode(Node nextNode) {
+        this.nextNode = nextNode;
+    }
+
+    void setDetachedRing(RingSnapshot members) {
+        this.detachedRing = members;
+    }
+
+    void setRemote(Consumer<Object> link) {
+        this.remote = link;
+    }
+
+    void setMetrics(RingMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    void setHoldTime(HoldTime holdTime) {
+        this.holdTime = holdTime;
+        this.nextHoldMillis = -1;
+    }
+
+    void setTokenList(List<ControlToken> tokenList) {
+        this.detachedTokens = tokenList;
+    }
+
+    void joinGroup(Node leader) {
+        this.groupLeader = leader;
+    }
+
+    void setNextLeader(Node leader) {
+        this.nextLeader = leader;
+    }
+
+    // Nobody asks a leader for the global token, so set it moving at once
+    void grantGlobalToken() {
+        log(Level.INFO, "Initial global token created");
+        deliver((Runnable) this::acceptGlobalToken);
+    }
+
+    private boolean isLeader() {
+        return nextLeader != null;
+    }
+
+    RingSnapshot currentRing() {
+        RingSnapshot members = detachedRing;
+        return members != null ? members : ring;
+    }
+
+    private List<ControlToken> currentTokens() {
+        List<ControlToken> list = detachedTokens;
+        return list != null ? list : tokens;
+    }
+
+    // One binary trace record, stamped with this node's clock
+    void trace(Kind kind, int tokenId, int peer, int count, long value) {
+        if (Trace.isEnabled()) {
+            NodeDriver d = driver;
+            Trace.record(kind, (d != null ? d : THREAD_DRIVER).nowMillis(), nodeId, tokenId, peer, count, value);
+        }
+    }
+
+    // The log thread formats entries later, by when tokens and queues have moved on,
+    // so anything but a number, string or enum goes in as its string now
+    private void log(Level level, String format, Object... args) {
+        if (!verbose || !EventLog.isEnabled(level)) {
+            return;
+        }
+        for (int i = 0; i < args.length; i++) {
+            Object arg = args[i];
+            if (!(arg instanceof Number || arg instanceof String || arg instanceof Enum)) {
+                args[i] = String.valueOf(arg);
+            }
+        }
+        EventLog.log(level, nodeId, format, args);
+    }
+
+    public static void setRuntime(NodeRuntime nodeRuntime) {
+        runtime = Objects.requireNonNull(nodeRuntime);
+    }
+
+    public static NodeRuntime getRuntime() { return runtime; }
+
+    void bind(NodeDriver nodeDriver) {
+        this.driver = nodeDriver;
+    }
+
+    public void start() {
+        if (!running) {
+            running = true;
+            runtime.start(this);
+            log(Level.INFO, "Started on %s", runtime);
+        }
+    }
+
+    public void stop() {
+        running = false;
+        NodeDriver d = driver;
+        if (d != null) {
+            d.wake(this);
+        }
+    }
+
+    boolean isRunning() { return running; }
+
+    boolean isDeparted() { return departed; }
+
+    // Dedicated-thread loop: handle deliveries the moment they arrive and park until
+    // the next poll tick or timer otherwise
+    @Override
+    public void run() {
+        thread = Thread.currentThread();
+        bind(THREAD_DRIVER);
+        Random rand = SEED != null ? new Random(SEED * 31 + nodeId) : new Random();
+        if (holdTime == null && HOLD_TIME != null) {
+            setHoldTime(HoldTime.parse(HOLD_TIME, SEED != null ? SEED * 31 + nodeId : rand.nextLong()));
+        }
+        long nextPoll = System.nanoTime() + pollNanos(rand);
+        while (running) {
+            drainMailbox();
+            long now = System.nanoTime();
+            TimedTask due = timers == null ? null : timers.peek();
+            if (due != null && now - due.deadline >= 0) {
+                timers.poll();
+                due.task.run();
+            } else if (now - nextPoll >= 0) {
+                step(rand);
+                nextPoll = now + pollNanos(rand);
+            } else {
+                long wakeAt = due != null && due.deadline - nextPoll < 0 ? due.deadline : nextPoll;
+                LockSupport.parkNanos(this, wakeAt - now);
+                if (Thread.interrupted()) {
+                    break;
+                }
+            }
+        }
+        log(Level.INFO, "Thread stopped");
+    }
+
+    static long pollDelay(Random rand) {
+        return POLL_MILLIS + rand.nextInt((int) Math.max(1, POLL_MILLIS * 3 / 2));
+    }
+
+    private static long pollNanos(Random rand) {
+        return TimeUnit.MILLISECONDS.toNanos(pollDelay(rand));
+    }
+
+    // A poll tick: maybe request the CS, and use a token resting at this node
+    void step(Random rand) {
+        step(rand, REQUEST_PROBABILITY);
+    }
+
+    void step(Random rand, double requestProbability) {
+        if (pendingRequests < MAX_PENDING_REQUESTS && rand.nextDouble() < requestProbability) {
+            requestCriticalSection();
+        }
+        
+        if (state != NodeState.IN_CS) {
+            algorithm.poll();
+        }
+    }
+
+    // Deliveries from neighbours and transports all land in the mailbox
+    public void receiveControlToken(ControlToken token) {
+        deliver(token);
+    }
+
+    public void forwardRequestToken(RequestToken requestToken) {
+        deliver(requestToken);
+    }
+
+    // Tokens, or a Runnable the driver wants run on this node's context
+    void deliver(Object message) {
+        Consumer<Object> link = remote;
+        if (link != null) {
+            link.accept(message);
+            return;
+        }
+        if (departed && !(message instanceof Runnable)) {
+            // Sent while we were leaving, e.g. a token mid-animation: our old
+            // successor takes it. If that one left too the token is lost, and the
+            // loss detector has to bring it back.
+            Node next = nextNode;
+            if (next != null && next != this && !next.departed) {
+                next.deliver(message);
+            }
+            return;
+        }
+        mailbox.offer(message);
+        NodeDriver d = driver;
+        if (d != null) {
+            d.wake(this);
+        }
+    }
+
+    boolean hasMail() { return !mailbox.isEmpty(); }
+
+    // Handles everything waiting in the mailbox; only called on the node's own context
+    void drainMailbox() {
+        Object message;
+        while ((message = mailbox.poll()) != null) {
+            if (message instanceof Runnable) {
+                ((Runnable) message).run();
+            } else if (!algorithm.receive(message)) {
+                log(Level.WARN, "Dropped, not a %s message | %s", config.getAlgorithm(), message);
+            }
+        }
+    }
+
+    boolean claimDrain() {
+        return DRAIN_SCHEDULED.compareAndSet(this, 0, 1);
+    }
+
+    void releaseDrain() {
+        drainScheduled = 0;
+    }
+
+    // The request-token/control-token scheme. It works on Node's own state, which
+    // Graph, TraceReplay, the ring of rings and loss recovery all read as well.
+    private final class TokenRing implements MutexAlgorithm {
+        @Override
+        public void request() {
+            armLossCheck();
+            if (controlToken != null) {
+                // We have control token - add directly to queue
+                queueSelf(controlToken);
+                log(Level.INFO, "Added request to control token | %s", controlToken);
+                processControlToken();
+            } else if (groupLeader == Node.this) {
+                // Our token is out on its lap; we join it when it comes back
+                log(Level.DEBUG, "Waiting for the sub-ring token to return");
+            } else if (groupLeader != null) {
+                sendRequestToLeader();
+            } else if (config.isCoalesceRequests() && config.getCoalesceWindowMillis() > 0) {
+                // Under load another request token passes soon; ride on it rather than
+                // adding one more token that has to go most of the way round
+                log(Level.DEBUG, "Waiting %d ms for a request token to join",
+                    config.getCoalesceWindowMillis());
+                driver.schedule(Node.this, config.getCoalesceWindowMillis(),
+                                Node.this::sendRequestTokenIfNeeded);
+            } else {
+                sendRequestToken();
+            }
+        }
+
+        @Override
+        public void release() {
+            requestCarried = false;
+            if (isRequesting()) {
+                // Out of grants for this visit: queued again like everyone else
+                queueSelf(controlToken);
+                requestCarried = true;
+            }
+            passControlToken();
+        }
+
+        @Override
+        public boolean receive(Object message) {
+            if (message instanceof ControlToken) {
+                acceptControlToken((ControlToken) message);
+            } else if (message instanceof TokenClaim) {
+                handleClaim((TokenClaim) message);
+            } else if (message instanceof RequestToken) {
+                handleRequestToken((RequestToken) message);
+            } else {
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public void poll() {
+            if (controlToken != null) {
+                processControlToken();
+            }
+        }
+    }
+
+    void requestCriticalSection() {
+        requestCriticalSection(Priority.NORMAL, 0);
+    }
+
+    // One more local request; only the first of a run needs the token fetched. A
+    // deadline, in ms from now, only counts under priority scheduling; 0 for none.
+    void requestCriticalSection(Priority priority, long deadlineMillis) {
+        boolean alreadyAsking = isRequesting() || state == NodeState.IN_CS;
+        long now = driver.nowMillis();
+        addLocalRequest(now, priority, deadlineMillis > 0 ? now + deadlineMillis : Long.MAX_VALUE);
+        trace(Kind.REQUEST, -1, -1, pendingRequests, 0);
+        if (alreadyAsking) {
+            log(Level.INFO, "Requesting CS | %d local requests pending", pendingRequests);
+            return;
+        }
+        log(Level.INFO, "Requesting CS");
+        state = NodeState.REQUESTING;
+        algorithm.request();
+    }
+
+    private void addLocalRequest(long now, Priority priority, long deadline) {
+        if (pendingRequests == requestTimes.length) {
+            int n = requestTimes.length;
+            long[] times = new long[n * 2];
+            byte[] classes = new byte[n * 2];
+            long[] deadlines = new long[n * 2];
+            for (int i = 0; i < pendingRequests; i++) {
+                times[i] = requestTimes[(requestHead + i) % n];
+                classes[i] = requestClasses[(requestHead + i) % n];
+                deadlines[i] = requestDeadlines[(requestHead + i) % n];
+            }
+            requestTimes = times;
+            requestClasses = classes;
+            requestDeadlines = deadlines;
+            requestHead = 0;
+        }
+        int tail = (requestHead + pendingRequests) % requestTimes.length;
+        requestTimes[tail] = now;
+        requestClasses[tail] = (byte) priority.ordinal();
+        requestDeadlines[tail] = deadline;
+        pendingRequests++;
+    }
+
+    // When our oldest request is due, see Priority. We serve our own in order.
+    private long ownDue() {
+        return due(requestHead);
+    }
+
+    // When the local request in slot at is due
+    private long due(int at) {
+        return Priority.of(requestClasses[at]).due(requestTimes[at], requestDeadlines[at],
+                                                   config.getPriorityAgingMillis());
+    }
+
+    // Our entry on a token: under priority scheduling it carries our due time
+    private void queueSelf(ControlToken token) {
+        if (config.isPriorityScheduling() && isRequesting()) {
+            token.addRequest(nodeId, ownDue());
+        } else {
+            token.addRequest(nodeId);
+        }
+    }
+
+    private void queueSelf(RequestToken token) {
+        if (config.isPriorityScheduling() && isRequesting()) {
+            token.addRequest(nodeId, ownDue());
+        } else {
+            token.addRequest(nodeId);
+        }
+    }
+
+    // Removes the oldest local request and returns when it was made
+    private long takeLocalRequest() {
+        long requestedAt = requestTimes[requestHead];
+        requestHead = (requestHead + 1) % requestTimes.length;
+        pendingRequests--;
+        return requestedAt;
+    }
+
+    boolean isRequesting() {
+        return pendingRequests > 0;
+    }
+
+    private void sendRequestTokenIfNeeded() {
+        if (isRequesting() && !requestCarried && controlToken == null) {
+            sendRequestToken();
+        }
+    }
+
+    private void sendRequestToken() {
+        RequestToken requestToken = newRequestToken(nodeId);
+        queueSelf(requestToken);
+        requestTokensCreated++;
+        requestCarried = true;
+        if (config.isCoalesceRequests()) {
+            forwarded().add(nodeId);
+        }
+        log(Level.INFO, "Created request token | %s", requestToken);
+        trace(Kind.FORWARD, -1, nextNode.nodeId, 1, nodeId);
+        countRequestHop(requestToken);
+        nextNode.forwardRequestToken(requestToken);
+    }
+
+    private RequestToken newRequestToken(int origin) {
+        RequestToken requestToken = new RequestToken(origin);
+        requestToken.stamp(driver.nowMillis());
+        return requestToken;
+    }
+
+    // Every request token hop counts towards the metrics, whatever carries it
+    private void countRequestHop(RequestToken requestToken) {
+        requestToken.countHop();
+        metrics.requestMessage();
+    }
+
+    // Ring of rings: the leader collects its group's requests, one hop away
+    private void sendRequestToLeader() {
+        RequestToken requestToken = newRequestToken(nodeId);
+        queueSelf(requestToken);
+        requestTokensCreated++;
+        requestCarried = true;
+        log(Level.INFO, "Created request token for leader Node-%d | %s", groupLeader.nodeId, requestToken);
+        final Node leader = groupLeader;
+        trace(Kind.FORWARD, -1, leader.nodeId, 1, nodeId);
+        countRequestHop(requestToken);
+        transport.sendRequestToken(this, leader, requestToken, () -> {
+            leader.forwardRequestToken(requestToken);
+        });
+    }
+
+    private void handleRequestToken(RequestToken requestToken) {
+        log(Level.DEBUG, "Received request token | %s", requestToken);
+        
+        if (this.nodeId == requestToken.getOriginNodeId() && config.getRouting() == Routing.HOP_BY_HOP) {
+            // Request token returned to sender after full circle. The control token was
+            // in transit the whole way round; minting another one here would let two
+            // nodes into the CS. It picks our request up when it next passes instead.
+            log(Level.INFO, "Request token completed full circle | Waiting for control token");
+            requestCarried = false;
+            return;
+        }
+        
+        if (controlToken != null) {
+            // We have control token (possibly in CS) - merge requests
+            controlToken.addAllRequests(requestToken.getRequests());
+            metrics.requestDelivered(nodeId, requestToken, driver.nowMillis());
+            log(Level.DEBUG, "Merged requests into control token | %s", controlToken);
+            trace(Kind.MERGE, controlToken.getId(), requestToken.getOriginNodeId(),
+                  controlToken.getQueue().size(), 0);
+            if (state != NodeState.IN_CS) {
+                // Token was resting here - serve the new requests right away
+                processControlToken();
+            }
+            return;
+        }
+        
+        if (isLeader()) {
+            // Our token is out on its lap
+            if (heldRequests == null) {
+                heldRequests = new RequestQueue(4);
+            }
+            heldRequests.addAll(requestToken.getRequests());
+            metrics.requestDelivered(nodeId, requestToken, driver.nowMillis());
+            log(Level.DEBUG, "Holding requests until the lap ends | %s", heldRequests);
+            return;
+        }
+        
+        if (config.isCoalesceRequests() && coalesce(requestToken)) {
+            return;
+        }
+        
+        // Forward request token to next node. A directly routed control token need
+        // never pass us again, so its request tokens go round until they find it,
+        // taking the shortcut wherever we know where the token went.
+        Node target = nextNode;
+        if (config.getRouting() == Routing.DIRECT && lastTokenTarget != null
+                && currentRing().indexOf(lastTokenTarget) >= 0) {
+            target = lastTokenTarget;
+        }
+        log(Level.DEBUG, "Forwarding request token to Node-%d", target.nodeId);
+        trace(Kind.FORWARD, -1, target.nodeId, requestToken.getRequests().size(),
+              requestToken.getOriginNodeId());
+        countRequestHop(requestToken);
+        final Node next = target;
+        transport.sendRequestToken(this, next, requestToken, () -> {
+            next.forwardRequestToken(requestToken);
+        });
+    }
+
+    // Returns true if the token is redundant and was dropped here
+    private boolean coalesce(RequestToken requestToken) {
+        if (isRequesting() && !requestCarried) {
+            // Ride along instead of sending our own token
+            queueSelf(requestToken);
+            requestCarried = true;
+            requestsPiggybacked++;
+            log(Level.DEBUG, "Piggybacked on request token | %s", requestToken);
+        }
+        if (config.getRouting() == Routing.DIRECT) {
+            // The token need never pass here to reset our memory of what we forwarded
+            return false;
+        }
+        IntSet forwarded = forwarded();
+        RequestQueue requests = requestToken.getRequests();
+        boolean seen = true;
+        for (int i = 0; i < requests.size() && seen; i++) {
+            seen = forwarded.contains(requests.get(i));
+        }
+        if (seen) {
+            // An earlier token we sent on already carries all of these
+            requestTokensSuppressed++;
+            log(Level.DEBUG, "Suppressed redundant request token | %s", requestToken);
+            return true;
+        }
+        if (forwarded.size() + requests.size() > FORWARDED_MEMORY) {
+            forwarded.clear();
+        }
+        requests.forEach(forwarded::add);
+        return false;
+    }
+
+    private IntSet forwarded() {
+        if (forwardedRequests == null) {
+            forwardedRequests = new IntSet(4);
+        }
+        return forwardedRequests;
+    }
+
+    private void acceptControlToken(ControlToken token) {
+        log(Level.DEBUG, "Received control token | %s", token);
+        if (isStale(token)) {
+            dropStaleToken(token);
+            return;
+        }
+        noteToken(token, true);
+        recordVisit(token);
+        if (controlToken != null && controlToken != token) {
+            if (controlToken.getId() == token.getId()) {
+                // A second copy must never survive - fold it into ours, newest stamp wins
+                controlToken.absorb(token);
+                register(controlToken);
+                log(Level.WARN, "Merged duplicate control token | %s", controlToken);
+                trace(Kind.MERGE, controlToken.getId(), -1, controlToken.getQueue().size(), 0);
+                return;
+            }
+            // k-token mode: we use one token at a time, so this one moves on. The one
+            // we hold serves us; our entry here would only hold this queue up.
+            token.removeRequest(nodeId);
+            log(Level.DEBUG, "Passing on extra control token | %s", token);
+            sendControlToken(token);
+            return;
+        }
+        this.controlToken = token;
+        if (forwardedRequests != null) {
+            // Anything sent on before now is queued on this token or will be picked up
+            // on its way round, so later request tokens must travel again
+            forwardedRequests.clear();
+        }
+        if (heldRequests != null && !heldRequests.isEmpty()) {
+            controlToken.addAllRequests(heldRequests);
+            heldRequests.clear();
+        }
+        if (isRequesting() && (config.getTokens() == 1 || !requestCarried || !token.hasRequests())) {
+            // Our request token may still be chasing this one round the ring. With
+            // several tokens, queue on this one only if our request is not already
+            // on its way to another, or this one can serve us right now.
+            queueSelf(controlToken);
+            requestCarried = true;
+        }
+        state = NodeState.HAS_TOKEN;
+        trace(Kind.ACCEPT, token.getId(), -1, token.getQueue().size(), token.getSequence());
+        // React at once instead of waiting for the next poll
+        processControlToken();
+    }
+
+    private void processControlToken() {
+        log(Level.DEBUG, "Processing control token | %s", controlToken);
+        
+        if (isLeader() && !holdsGlobalToken) {
+            // Parked until the global token comes round; requests pile up on it
+            return;
+        }
+        if (!isRequesting() && controlToken.removeRequest(nodeId)) {
+            // A late request token re-queued us after we were served
+            log(Level.DEBUG, "Dropped stale request | %s", controlToken);
+        }
+        boolean ourTurn = config.getRouting() == Routing.DIRECT && !config.isPriorityScheduling()
+            ? controlToken.contains(nodeId)  // served in ring order as the token sweeps
+            : controlToken.hasRequests() && controlToken.peekRequest() == nodeId;
+        if (ourTurn) {
+            // Our turn to enter CS
+            enterCriticalSection();
+        } else {
+            // Pass control token to next node
+            passControlToken();
+        }
+    }
+
+    private void enterCriticalSection() {
+        log(Level.INFO, "ENTERING CS | %s", controlToken);
+        state = NodeState.IN_CS;
+        controlToken.removeRequest(nodeId);  // Remove ourselves from queue
+        long now = driver.nowMillis();
+        if (grantsThisVisit++ == 0) {
+            visitStart = now;
+        }
+        csEnteredAt = now;
+        csEntries++;
+        if (captured != null) {
+            captured.served(controlToken);
+        }
+        Priority priority = Priority.of(requestClasses[requestHead]);
+        boolean late = now > requestDeadlines[requestHead];
+        long wait = now - takeLocalRequest();
+        totalWaitMillis += wait;
+        maxWaitMillis = Math.max(maxWaitMillis, wait);
+        metrics.csEntered(nodeId, controlToken.getId(), now, wait, controlToken.takeHops(), priority,
+                          late);
+        trace(Kind.ENTER, controlToken.getId(), -1, pendingRequests, wait);
+        long hold = nextHold();
+        nextHoldMillis = -1;
+        driver.schedule(this, hold, this::exitCriticalSection);
+    }
+
+    void exitCriticalSection() {
+        log(Level.INFO, "EXITING CS | %s", controlToken);
+        long now = driver.nowMillis();
+        long held = now - csEnteredAt;
+        controlToken.recordGrant(held);
+        metrics.csExited(now);
+        trace(Kind.EXIT, controlToken.getId(), -1, pendingRequests, held);
+        if (isRequesting() && mayGrantAgain()) {
+            // Batching: serve the next local request while we still hold the token
+            log(Level.DEBUG, "Granting local request %d of this visit", grantsThisVisit + 1);
+            enterCriticalSection();
+            return;
+        }
+        // Still ours until the algorithm sends it on
+        state = NodeState.HAS_TOKEN;
+        algorithm.release();
+    }
+
+    // The batching caps: at most maxGrantsPerVisit entries, and a further one only
+    // if it ends within the visit's time budget, bound how long others wait on us
+    private boolean mayGrantAgain() {
+        if (grantsThisVisit >= config.getMaxGrantsPerVisit()) {
+            return false;
+        }
+        long budget = config.getGrantBudgetMillis();
+        return budget == 0 || driver.nowMillis() - visitStart + nextHold() <= budget;
+    }
+
+    private long nextHold() {
+        if (nextHoldMillis < 0) {
+            nextHoldMillis = holdTime != null ? holdTime.nextMillis() : config.getCsMillis();
+        }
+        return nextHoldMillis;
+    }
+
+    private void passControlToken() {
+        if (nextNode == null || controlToken == null) return;
+        if (groupLeader == null && !controlToken.hasRequests()) {
+            // Nobody is waiting, so the token rests here rather than circling an idle
+            // ring; a local request or an arriving request token sets it off again
+            grantsThisVisit = 0;
+            state = NodeState.HAS_TOKEN;
+            return;
+        }
+        
+        if (isLeader()) {
+            if (holdsGlobalToken && !lapStarted && controlToken.hasRequests()) {
+                // Send our sub-ring's token round once
+                lapStarted = true;
+            } else {
+                // Lap done or nothing to serve: park the token, let the next group go
+                lapStarted = false;
+                grantsThisVisit = 0;
+                state = isRequesting() ? NodeState.REQUESTING : NodeState.HAS_TOKEN;
+                if (holdsGlobalToken) {
+                    passGlobalToken();
+                }
+                return;
+            }
+        }
+        
+        final ControlToken t = controlToken;
+        controlToken = null;
+        grantsThisVisit = 0;
+        state = isRequesting() ? NodeState.REQUESTING : NodeState.IDLE;
+        sendControlToken(t);
+        if (isRequesting()) {
+            armLossCheck();
+        }
+    }
+
+    // Picks where t goes next and sends it
+    private void sendControlToken(ControlToken t) {
+        Node target = nextNode;
+        if (config.getRouting() == Routing.DIRECT) {
+            Node requester = config.isPriorityScheduling() ? scheduledRequester(t)
+                                                           : nextQueuedRequester(t);
+            if (groupLeader != null && groupLeader != this && (requester == null
+                    || currentRing().indexOf(requester) < currentRing().indexOf(this))) {
+                // Nobody left before our leader: end the lap there in one jump
+                target = groupLeader;
+            } else if (requester != null) {
+                target = requester;
+            }
+            lastTokenTarget = target;
+        }
+        t.advance();
+        if (Checkpoint.isEnabled() && detachedRing == null) {
+            t.recordSent();
+        }
+        noteToken(t, false);
+        log(Level.DEBUG, "Passing control token to Node-%d | %s", target.nodeId, t);
+        trace(Kind.PASS, t.getId(), target.nodeId, t.getQueue().size(), t.getSequence());
+        metrics.controlMessage();
+        final Node next = target;
+        
+        // Animate token transfer and pass token after animation completes
+        transport.sendControlToken(this, next, () -> {
+            next.receiveControlToken(t);
+        });
+    }
+
+    private void acceptGlobalToken() {
+        log(Level.DEBUG, "Received global token | %s", controlToken);
+        holdsGlobalToken = true;
+        if (controlToken != null && controlToken.hasRequests()) {
+            processControlToken();
+        } else {
+            passGlobalToken();
+        }
+    }
+
+    private void passGlobalToken() {
+        holdsGlobalToken = false;
+        final Node next = nextLeader;
+        log(Level.DEBUG, "Passing global token to Node-%d", next.nodeId);
+        metrics.controlMessage();
+        transport.sendControlToken(this, next, () -> {
+            next.deliver((Runnable) next::acceptGlobalToken);
+        });
+    }
+
+    // Token-loss detection. A live token either rests at a node or is sent on at
+    // least once per hop plus one visit, and every send and receipt is noted, so
+    // within one timeout some node always holds it or has seen it. A waiting node that has not seen a token for
+    // a timeout sends a claim round the ring; any node that vouches for a suspected
+    // token clears it, and what is still suspected when the claim returns is
+    // regenerated. Of several claims at once only the one from the highest node ID
+    // goes on, and generations fence off any copy that does turn up again.
+    private long lossTimeoutMillis() {
+        long timeout = config.getTokenTimeoutMillis();
+        if (timeout > 0) {
+            return timeout;
+        }
+        return 2 * ((currentRing().size() + 1) * Simulator.HOP_MILLIS
+                    + config.getCsMillis() * config.getMaxGrantsPerVisit());
+    }
+
+    private void armLossCheck() {
+        if (!lossCheckArmed && groupLeader == null) {
+            lossCheckArmed = true;
+            driver.schedule(this, lossTimeoutMillis(), this::checkForLostToken);
+        }
+    }
+
+    private void checkForLostToken() {
+        lossCheckArmed = false;
+        if (!isRequesting() || controlToken != null || departed) {
+            return;
+        }
+        long now = driver.nowMillis();
+        long timeout = lossTimeoutMillis();
+        // A claim of ours still out after a whole timeout went missing; send another
+        if (!claiming || now - claimStartedAt >= timeout) {
+            BitSet suspects = new BitSet();
+            for (int id = 0; id < currentTokens().size(); id++) {
+                if (!hasSeenToken(id, now, timeout)) {
+                    suspects.set(id);
+                }
+            }
+            if (!suspects.isEmpty()) {
+                startClaim(suspects, now);
+            }
+        }
+        armLossCheck();
+    }
+
+    private void startClaim(BitSet suspects, long now) {
+        TokenClaim claim = new TokenClaim(nodeId, ++claimRound, suspects, config.getTokens());
+        queueSelf(claim);
+        for (int id = suspects.nextSetBit(0); id >= 0; id = suspects.nextSetBit(id + 1)) {
+            observe(claim, id);
+        }
+        claiming = true;
+        claimStartedAt = now;
+        claimsStarted++;
+        log(Level.WARN, "Control token %s not seen for %d ms, claiming it lost | %s",
+            suspects, lossTimeoutMillis(), claim);
+        sendClaim(claim);
+    }
+
+    private void handleClaim(TokenClaim claim) {
+        long now = driver.nowMillis();
+        long timeout = lossTimeoutMillis();
+        int origin = claim.getOriginNodeId();
+        if (origin == nodeId) {
+            if (claiming && claim.getRound() == claimRound) {
+                claiming = false;
+                regenerate(claim, now);
+            }
+            return;
+        }
+        if (currentRing().indexOfId(origin) < 0) {
+            log(Level.DEBUG, "Dropped claim of departed Node-%d | %s", origin, claim);
+            return;
+        }
+        if (claiming && now - claimStartedAt < timeout) {
+            if (nodeId > origin) {
+                // Our own claim goes on instead
+                log(Level.DEBUG, "Dropped lower claim | %s", claim);
+                return;
+            }
+            claiming = false;
+        }
+        BitSet suspects = claim.getSuspects();
+        for (int id = suspects.nextSetBit(0); id >= 0; id = suspects.nextSetBit(id + 1)) {
+            if (hasSeenToken(id, now, timeout)) {
+                suspects.clear(id);
+            } else {
+                observe(claim, id);
+            }
+        }
+        if (suspects.isEmpty()) {
+            // False alarm: the requests gathered so far go on like any request token
+            log(Level.INFO, "Control token seen within %d ms, claim dropped | %s", timeout, claim);
+            RequestToken requestToken = newRequestToken(origin);
+            requestToken.addAllRequests(claim.getRequests());
+            handleRequestToken(requestToken);
+            return;
+        }
+        if (isRequesting() && controlToken == null) {
+            queueSelf(claim);
+        }
+        sendClaim(claim);
+    }
+
+    private void sendClaim(TokenClaim claim) {
+        final Node next = nextNode;
+        countRequestHop(claim);
+        transport.sendRequestToken(this, next, claim, () -> {
+            next.forwardRequestToken(claim);
+        });
+    }
+
+    // Mints every token still suspected one generation above the newest the claim
+    // passed. The first carries the gathered requests; any others we pass on.
+    private void regenerate(TokenClaim claim, long now) {
+        BitSet suspects = claim.getSuspects();
+        boolean first = true;
+        for (int id = suspects.nextSetBit(0); id >= 0; id = suspects.nextSetBit(id + 1)) {
+            ControlToken token = new ControlToken(id, claim.getEpoch(id) + 1);
+            if (first) {
+                token.addAllRequests(claim.getRequests());
+                first = false;
+            }
+            tokensRegenerated++;
+            register(token);
+            log(Level.WARN, "Regenerated control token %d ms after claiming | %s",
+                now - claimStartedAt, token);
+            trace(Kind.REGENERATE, id, -1, 0, token.getEpoch());
+            acceptControlToken(token);
+        }
+    }
+
+    // Replaces the token listed under this id
+    private void register(ControlToken token) {
+        List<ControlToken> list = currentTokens();
+        synchronized (membershipLock) {
+            if (token.getId() < list.size()) {
+                list.set(token.getId(), token);
+            }
+        }
+    }
+
+    private boolean hasSeenToken(int tokenId, long now, long timeout) {
+        ControlToken held = controlToken;
+        if (held != null && held.getId() == tokenId) {
+            return true;
+        }
+        return tokenSeenAt != null && now - tokenSeenAt[tokenId] < timeout;
+    }
+
+    private void observe(TokenClaim claim, int tokenId) {
+        if (tokenEpochs != null) {
+            claim.observe(tokenId, tokenEpochs[tokenId], tokenSequences[tokenId]);
+        }
+    }
+
+    // Only a received token moves the newest generation and sequence: our own send
+    // may come straight back to us. Loss detection covers flat rings only, and the
+    // ring of rings numbers its group tokens apart from config.getTokens().
+    private void noteToken(ControlToken token, boolean received) {
+        if (groupLeader != null) {
+            return;
+        }
+        if (tokenSeenAt == null) {
+            int count = config.getTokens();
+            tokenSeenAt = new long[count];
+            tokenEpochs = new int[count];
+            tokenSequences = new long[count];
+            Arrays.fill(tokenSeenAt, Long.MIN_VALUE / 2);
+            Arrays.fill(tokenSequences, -1);
+        }
+        int id = token.getId();
+        tokenSeenAt[id] = driver.nowMillis();
+        if (received) {
+            tokenEpochs[id] = token.getEpoch();
+            tokenSequences[id] = token.getSequence();
+        }
+    }
+
+    // An older generation, or a copy of one we already received
+    private boolean isStale(ControlToken token) {
+        if (tokenEpochs == null || groupLeader != null) {
+            return false;
+        }
+        int id = token.getId();
+        return token.getEpoch() < tokenEpochs[id]
+            || (token.getEpoch() == tokenEpochs[id] && token.getSequence() <= tokenSequences[id]);
+    }
+
+    // Rotation time: how long since this token last reached this node
+    private void recordVisit(ControlToken token) {
+        int id = token.getId();
+        if (tokenVisitedAt == null || id >= tokenVisitedAt.length) {
+            int from = tokenVisitedAt == null ? 0 : tokenVisitedAt.length;
+            tokenVisitedAt = from == 0 ? new long[id + 1] : Arrays.copyOf(tokenVisitedAt, id + 1);
+            Arrays.fill(tokenVisitedAt, from, id + 1, -1);
+        }
+        long now = driver.nowMillis();
+        long last = tokenVisitedAt[id];
+        tokenVisitedAt[id] = now;
+        metrics.tokenVisited(nodeId, id, last >= 0 ? now - last : -1, token.getQueue().size());
+    }
+
+    // Its queue goes on as a request token so nobody waiting on it is forgotten
+    private void dropStaleToken(ControlToken token) {
+        staleTokensDropped++;
+        log(Level.WARN, "Discarded stale control token | %s", token);
+        if (token.hasRequests()) {
+            RequestToken requestToken = newRequestToken(token.peekRequest());
+            requestToken.addAllRequests(token.getQueue());
+            handleRequestToken(requestToken);
+        }
+    }
+
+    // Direct routing: the queued requester the token would reach first going round
+    // the ring, or null if none is queued. Drops IDs of nodes that have left.
+    private Node nextQueuedRequester(ControlToken token) {
+        RingSnapshot members = currentRing();
+        int self = members.indexOf(this);
+        if (self < 0) return null;
+        RequestQueue queue = token.getQueue();
+        int n = members.size();
+        Node best = null;
+        int bestDistance = n;
+        for (int i = queue.size() - 1; i >= 0; i--) {
+            int position = members.indexOfId(queue.get(i));
+            if (position < 0) {
+                queue.remove(queue.get(i));
+                continue;
+            }
+            int distance = (position - self + n) % n;
+            if (distance > 0 && distance < bestDistance) {
+                best = members.get(position);
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    // Priority scheduling: whoever is due first, wherever it is; if that is us, the
+    // nearest requester in ring order. Drops IDs of nodes that have left.
+    private Node scheduledRequester(ControlToken token) {
+        RingSnapshot members = currentRing();
+        RequestQueue queue = token.getQueue();
+        while (!queue.isEmpty()) {
+            int position = members.indexOfId(queue.peek());
+            if (position < 0) {
+                queue.poll();
+                continue;
+            }
+            Node first = members.get(position);
+            return first != this ? first : nextQueuedRequester(token);
+        }
+        return null;
+    }
+
+    // For the other MutexAlgorithms, which move a ControlToken as their privilege so
+    // the CS bookkeeping, Graph and the metrics work as for the ring
+
+    long now() {
+        return driver.nowMillis();
+    }
+
+    // Enters the CS for the oldest local request; the privilege must be held here
+    void grant() {
+        enterCriticalSection();
+    }
+
+    ControlToken heldToken() {
+        return controlToken;
+    }
+
+    void holdPrivilege(ControlToken token) {
+        log(Level.DEBUG, "Received privilege | %s", token);
+        controlToken = token;
+        state = NodeState.HAS_TOKEN;
+        recordVisit(token);
+        trace(Kind.ACCEPT, token.getId(), -1, token.getQueue().size(), token.getSequence());
+    }
+
+    // Gives up the privilege and sends message, which carries token, to target
+    void sendPrivilege(Node target, Object message) {
+        ControlToken token = controlToken;
+        controlToken = null;
+        grantsThisVisit = 0;
+        state = isRequesting() ? NodeState.REQUESTING : NodeState.IDLE;
+        token.advance();
+        log(Level.DEBUG, "Passing privilege to Node-%d | %s", target.nodeId, message);
+        trace(Kind.PASS, token.getId(), target.nodeId, token.getQueue().size(), token.getSequence());
+        metrics.controlMessage();
+        transport.sendControlToken(this, target, () -> target.deliver(message));
+    }
+
+    void sendRequest(Node target, RequestToken request) {
+        request.stamp(driver.nowMillis());
+        trace(Kind.FORWARD, -1, target.nodeId, 1, request.getOriginNodeId());
+        countRequestHop(request);
+        transport.sendRequestToken(this, target, request, () -> target.deliver(request));
+    }
+
+    // Getters
+    public int getNodeId() { return nodeId; }
+    public boolean hasToken() { return controlToken != null; }
+    // Id of the control token held here, or -1
+    public int getTokenId() {
+        ControlToken token = controlToken;
+        return token == null ? -1 : token.getId();
+    }
+    public NodeState getState() { return state; }
+    long getRequestTokensCreated() { return requestTokensCreated; }
+    long getRequestTokensSuppressed() { return requestTokensSuppressed; }
+    long getRequestsPiggybacked() { return requestsPiggybacked; }
+    long getCsEntries() { return csEntries; }
+    int getPendingRequests() { return pendingRequests; }
+    long getTotalWaitMillis() { return totalWaitMillis; }
+    long getMaxWaitMillis() { return maxWaitMillis; }
+    long getClaimsStarted() { return claimsStarted; }
+    long getTokensRegenerated() { return tokensRegenerated; }
+    long getStaleTokensDropped() { return staleTokensDropped; }
+    public static RingSnapshot getRing() { return ring; }
+    public static List<Node> getAllNodes() { return ring.asList(); }
+    public static List<ControlToken> getTokens() { return Collections.unmodifiableList(tokens); }
+    
+    public static Node removeLastNode() {
+        synchronized (membershipLock) {
+            RingSnapshot current = ring;
+            if (current.isEmpty()) return null;
+            return removeAt(current, current.size() - 1);
+        }
+    }
+
+    // Leaves the ring; only the predecessor is rewired
+    public static boolean removeNode(Node node) {
+        synchronized (membershipLock) {
+            RingSnapshot current = ring;
+            int index = current.indexOf(node);
+            if (index < 0) return false;
+            removeAt(current, index);
+            return true;
+        }
+    }
+
+    // Leaving: a token still held here goes on to the old successor
+    private void handOverToken(Node successor) {
+        ControlToken token = controlToken;
+        if (token == null) return;
+        controlToken = null;
+        successor.receiveControlToken(token);
+        log(Level.INFO, "Control token transferred to Node-%d | %s", successor.nodeId, token);
+    }
+
+    // Caller holds membershipLock
+    private static Node removeAt(RingSnapshot current, int index) {
+        Node removed = current.get(index);
+        Node successor = removed.nextNode;
+        if (current.size() > 1) {
+            current.get((index - 1 + current.size()) % current.size()).nextNode = successor;
+        }
+        ring = current.withRemoved(index);
+        removed.trace(Kind.LEAVE, -1, -1, index, 0);
+        removed.departed = true;
+        if (current.size() == 1) {
+            // The ring is gone and its tokens with it; the next member mints new ones
+            tokens.clear();
+            removed.stop();
+        } else if (removed.isRunning()) {
+            // Its own context may be passing the token right now, so the hand-over
+            // runs there, after everything already in its mailbox
+            removed.deliver((Runnable) () -> {
+                removed.handOverToken(successor);
+                removed.stop();
+            });
+        } else {
+            removed.handOverToken(successor);
+        }
+        return removed;
+    }
+}
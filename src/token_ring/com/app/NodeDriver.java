@@ -0,0 +1,15 @@
+// NodeDriver.java
+package com.app;
+
+// Execution context a started node is bound to. Whatever a driver triggers runs on
+// the node's own context, so at most one thread works on a node's state at a time.
+interface NodeDriver {
+    // A delivery is waiting in the node's mailbox
+    void wake(Node node);
+
+    // Run task on the node's context after the given time; only called from that context
+    void schedule(Node node, long millis, Runnable task);
+
+    // The clock schedule() counts in, for measuring waits
+    long nowMillis();
+}
@@ -0,0 +1,128 @@
+// NodeRuntime.java
+package com.app;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Where a started Node executes its protocol loop. Chosen with
+// -Dtoken_ring.runtime=platform|virtual|shared (default platform).
+public enum NodeRuntime {
+    // One platform thread per node, sleeping between polls
+    PLATFORM_THREADS {
+        @Override
+        void start(Node node) {
+            new Thread(node, "Node-" + node.getNodeId()).start();
+        }
+    },
+    // One virtual thread per node; needs a JDK that has them
+    VIRTUAL_THREADS {
+        @Override
+        void start(Node node) {
+            if (START_VIRTUAL == null) {
+                throw new UnsupportedOperationException("Virtual threads need JDK 21+, running "
+                                                        + Runtime.version());
+            }
+            try {
+                START_VIRTUAL.invoke(null, node);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException("Could not start virtual thread for Node-"
+                                                + node.getNodeId(), e);
+            }
+        }
+    },
+    // Every node is a chain of timed tasks on one small pool, so nothing sleeps
+    SHARED_SCHEDULER {
+        @Override
+        void start(Node node) {
+            SharedScheduler.INSTANCE.start(node);
+        }
+    };
+
+    abstract void start(Node node);
+
+    private static final Method START_VIRTUAL = findStartVirtualThread();
+
+    private static Method findStartVirtualThread() {
+        try {
+            return Thread.class.getMethod("startVirtualThread", Runnable.class);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    public static boolean virtualThreadsAvailable() {
+        return START_VIRTUAL != null;
+    }
+
+    static NodeRuntime fromSystemProperty() {
+        String name = System.getProperty("token_ring.runtime", "platform");
+        switch (name) {
+            case "platform": return PLATFORM_THREADS;
+            case "virtual": return VIRTUAL_THREADS;
+            case "shared": return SHARED_SCHEDULER;
+            default: throw new IllegalArgumentException("Unknown token_ring.runtime: " + name);
+        }
+    }
+
+    // Created on first use so the other runtimes never spin up the pool. A node runs
+    // as drain tasks; its timers post Runnables into its mailbox, which keeps every
+    // piece of node work serialized behind the one drain claim.
+    private static final class SharedScheduler implements NodeDriver {
+        static final SharedScheduler INSTANCE = new SharedScheduler();
+
+        private final ScheduledExecutorService pool = Executors.newScheduledThreadPool(
+            Runtime.getRuntime().availableProcessors(), r -> {
+                Thread t = new Thread(r, "node-scheduler");
+                t.setDaemon(true);
+                return t;
+            });
+
+        void start(Node node) {
+            node.bind(this);
+            schedulePoll(node, new Random());
+            // Anything delivered before the node was started
+            wake(node);
+        }
+
+        @Override
+        public void wake(Node node) {
+            if (node.claimDrain()) {
+                pool.execute(() -> drain(node));
+            }
+        }
+
+        private void drain(Node node) {
+            if (node.isRunning()) {
+                node.drainMailbox();
+            }
+            node.releaseDrain();
+            // Catch deliveries that raced with the release
+            if (node.isRunning() && node.hasMail()) {
+                wake(node);
+            }
+        }
+
+        @Override
+        public void schedule(Node node, long millis, Runnable task) {
+            pool.schedule(() -> node.deliver(task), millis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public long nowMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+        }
+
+        private void schedulePoll(Node node, Random rand) {
+            pool.schedule(() -> node.deliver((Runnable) () -> {
+                if (node.isRunning()) {
+                    node.step(rand);
+                    schedulePoll(node, rand);
+                }
+            }), Node.pollDelay(rand), TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+// Priority.java
+package com.app;
+
+import java.util.Locale;
+
+// Class of a CS request. Under priority scheduling (token_ring.priorityAgingMillis)
+// a request is due one aging step after it was made per class below CRITICAL, or
+// at its deadline if that is sooner, so waiting lifts a BULK request above newer
+// NORMAL ones and neither starves the other. CRITICAL requests are due in a band of
+// their own, before all the rest: aging never lets a backlog push them back, and
+// their wait stays bounded as long as CRITICAL load alone fits the ring.
+public enum Priority {
+    CRITICAL,
+    NORMAL,
+    BULK;
+
+    private static final Priority[] VALUES = values();
+    private static final long CRITICAL_BAND = 1L << 62;
+
+    static Priority of(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    // Due time of a request made at requestedAt with an absolute deadline
+    // (Long.MAX_VALUE for none); only compared against other due times
+    long due(long requestedAt, long deadline, long agingMillis) {
+        long due = Math.min(requestedAt + ordinal() * agingMillis, deadline);
+        return this == CRITICAL ? due - CRITICAL_BAND : due;
+    }
+
+    public static Priority parse(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    public String label() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
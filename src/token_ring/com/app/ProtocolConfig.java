@@ -0,0 +1,261 @@
+// ProtocolConfig.java
+package com.app;
+
+import java.util.Objects;
+
+// Protocol switches shared by every node of one ring. Immutable once built; DEFAULT
+// is read from system properties, other variants are derived with the with* methods
+// so simulations in one JVM can compare them side by side.
+public final class ProtocolConfig {
+    public static final ProtocolConfig DEFAULT = fromSystemProperties();
+
+    // How the control token moves once the holder is done with it
+    public enum Routing {
+        // One ring hop at a time, visiting every node
+        HOP_BY_HOP,
+        // Straight to the next queued requester in ring order; hop by hop when the
+        // queue is empty
+        DIRECT
+    }
+
+    // Which mutual-exclusion algorithm moves the right to enter the CS
+    public enum Algorithm {
+        // Request tokens chase control tokens round the ring; everything above applies
+        RING,
+        // Requests broadcast with sequence numbers, one privilege with a queue
+        SUZUKI_KASAMI,
+        // Requests and privilege along the edges of a fixed tree
+        RAYMOND
+    }
+
+    // Piggyback on passing request tokens and drop ones that carry nothing new
+    private boolean coalesceRequests = true;
+    // How long a new requester waits for a request token to ride on before it sends
+    // its own; 0 sends at once
+    private long coalesceWindowMillis = 1000;
+    private Routing routing = Routing.HOP_BY_HOP;
+    // Suzuki-Kasami and Raymond need one token, a flat ring and fixed membership;
+    // routing, coalescing and loss recovery are the ring's own
+    private Algorithm algorithm = Algorithm.RING;
+    // Batching: a holder with more local requests may re-enter the CS up to this
+    // many times per token visit, and only while the next entry ends within the
+    // budget (0 = no time cap). More grants raise throughput under local contention
+    // at the cost of everyone else's wait; 1 passes the token after every entry.
+    private int maxGrantsPerVisit = 1;
+    private long grantBudgetMillis = 0;
+    // Ring of rings: nodes form sub-rings of this many, each with a leader, and the
+    // leaders pass a global token that lets one sub-ring at a time run its own
+    // token. 0 keeps one flat ring. Built by the Simulator.
+    private int groupSize = 0;
+    // k-mutual exclusion: this many control tokens circulate, each with its own
+    // queue, so up to k nodes are in the CS at once. Flat rings only.
+    private int tokens = 1;
+    // Token-loss detection: a waiting node that has not seen a control token for
+    // this long claims it lost. 0 derives it from the ring size: twice a rotation
+    // of hops plus one full visit. Flat rings only.
+    private long tokenTimeoutMillis = 0;
+    // How long a node stays in the CS per entry
+    private long csMillis = 2000;
+    // Priority scheduling: control tokens serve requests by due time (see Priority),
+    // each class below CRITICAL adding this much; direct routing then goes straight
+    // to whoever is due first, while hop by hop may need a lap per entry to reach
+    // them. 0 serves in FIFO order and ignores classes and deadlines. Ring only.
+    private long priorityAgingMillis = 0;
+
+    private ProtocolConfig() {
+    }
+
+    private static ProtocolConfig fromSystemProperties() {
+        ProtocolConfig config = new ProtocolConfig();
+        config.coalesceRequests =
+            Boolean.parseBoolean(System.getProperty("token_ring.coalesceRequests", "true"));
+        config.coalesceWindowMillis = checkWindow(Long.getLong("token_ring.coalesceWindowMillis", 1000));
+        config.maxGrantsPerVisit = checkGrants(Integer.getInteger("token_ring.maxGrantsPerVisit", 1));
+        config.grantBudgetMillis = checkBudget(Long.getLong("token_ring.grantBudgetMillis", 0));
+        config.groupSize = checkGroupSize(Integer.getInteger("token_ring.groupSize", 0));
+        config.tokens = checkTokens(Integer.getInteger("token_ring.tokens", 1));
+        config.tokenTimeoutMillis = checkTimeout(Long.getLong("token_ring.tokenTimeoutMillis", 0));
+        config.csMillis = checkCsMillis(Long.getLong("token_ring.csMillis", 2000));
+        config.priorityAgingMillis = checkAging(Long.getLong("token_ring.priorityAgingMillis", 0));
+        String routing = System.getProperty("token_ring.routing", "hop");
+        switch (routing) {
+            case "hop": config.routing = Routing.HOP_BY_HOP; break;
+            case "direct": config.routing = Routing.DIRECT; break;
+            default: throw new IllegalArgumentException("Unknown token_ring.routing: " + routing);
+        }
+        String algorithm = System.getProperty("token_ring.algorithm", "ring");
+        switch (algorithm) {
+            case "ring": config.algorithm = Algorithm.RING; break;
+            case "suzuki-kasami": config.algorithm = Algorithm.SUZUKI_KASAMI; break;
+            case "raymond": config.algorithm = Algorithm.RAYMOND; break;
+            default: throw new IllegalArgumentException("Unknown token_ring.algorithm: " + algorithm);
+        }
+        return config;
+    }
+
+    private ProtocolConfig copy() {
+        ProtocolConfig config = new ProtocolConfig();
+        config.coalesceRequests = coalesceRequests;
+        config.coalesceWindowMillis = coalesceWindowMillis;
+        config.routing = routing;
+        config.algorithm = algorithm;
+        config.maxGrantsPerVisit = maxGrantsPerVisit;
+        config.grantBudgetMillis = grantBudgetMillis;
+        config.groupSize = groupSize;
+        config.tokens = tokens;
+        config.tokenTimeoutMillis = tokenTimeoutMillis;
+        config.csMillis = csMillis;
+        config.priorityAgingMillis = priorityAgingMillis;
+        return config;
+    }
+
+    private static long checkWindow(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Negative coalesce window: " + millis);
+        }
+        return millis;
+    }
+
+    private static int checkGrants(int grants) {
+        if (grants < 1) {
+            throw new IllegalArgumentException("Need at least one grant per visit: " + grants);
+        }
+        return grants;
+    }
+
+    private static long checkBudget(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Negative grant budget: " + millis);
+        }
+        return millis;
+    }
+
+    private static int checkGroupSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Negative group size: " + size);
+        }
+        return size;
+    }
+
+    private static int checkTokens(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Need at least one control token: " + count);
+        }
+        return count;
+    }
+
+    private static long checkTimeout(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Negative token timeout: " + millis);
+        }
+        return millis;
+    }
+
+    private static long checkCsMillis(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Negative CS duration: " + millis);
+        }
+        return millis;
+    }
+
+    private static long checkAging(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Negative priority aging: " + millis);
+        }
+        return millis;
+    }
+
+    public ProtocolConfig withCoalesceRequests(boolean coalesce) {
+        ProtocolConfig config = copy();
+        config.coalesceRequests = coalesce;
+        return config;
+    }
+
+    public ProtocolConfig withCoalesceWindowMillis(long millis) {
+        ProtocolConfig config = copy();
+        config.coalesceWindowMillis = checkWindow(millis);
+        return config;
+    }
+
+    public ProtocolConfig withRouting(Routing routing) {
+        ProtocolConfig config = copy();
+        config.routing = Objects.requireNonNull(routing);
+        return config;
+    }
+
+    public ProtocolConfig withAlgorithm(Algorithm algorithm) {
+        ProtocolConfig config = copy();
+        config.algorithm = Objects.requireNonNull(algorithm);
+        return config;
+    }
+
+    public ProtocolConfig withMaxGrantsPerVisit(int grants) {
+        ProtocolConfig config = copy();
+        config.maxGrantsPerVisit = checkGrants(grants);
+        return config;
+    }
+
+    public ProtocolConfig withGrantBudgetMillis(long millis) {
+        ProtocolConfig config = copy();
+        config.grantBudgetMillis = checkBudget(millis);
+        return config;
+    }
+
+    public ProtocolConfig withGroupSize(int size) {
+        ProtocolConfig config = copy();
+        config.groupSize = checkGroupSize(size);
+        return config;
+    }
+
+    public ProtocolConfig withTokens(int count) {
+        ProtocolConfig config = copy();
+        config.tokens = checkTokens(count);
+        return config;
+    }
+
+    public ProtocolConfig withTokenTimeoutMillis(long millis) {
+        ProtocolConfig config = copy();
+        config.tokenTimeoutMillis = checkTimeout(millis);
+        return config;
+    }
+
+    public ProtocolConfig withCsMillis(long millis) {
+        ProtocolConfig config = copy();
+        config.csMillis = checkCsMillis(millis);
+        return config;
+    }
+
+    public ProtocolConfig withPriorityAgingMillis(long millis) {
+        ProtocolConfig config = copy();
+        config.priorityAgingMillis = checkAging(millis);
+        return config;
+    }
+
+    public boolean isCoalesceRequests() { return coalesceRequests; }
+    public long getCoalesceWindowMillis() { return coalesceWindowMillis; }
+    public Routing getRouting() { return routing; }
+    public Algorithm getAlgorithm() { return algorithm; }
+    public int getMaxGrantsPerVisit() { return maxGrantsPerVisit; }
+    public long getGrantBudgetMillis() { return grantBudgetMillis; }
+    public int getGroupSize() { return groupSize; }
+    public int getTokens() { return tokens; }
+    public long getTokenTimeoutMillis() { return tokenTimeoutMillis; }
+    public long getCsMillis() { return csMillis; }
+    public long getPriorityAgingMillis() { return priorityAgingMillis; }
+    public boolean isPriorityScheduling() { return priorityAgingMillis > 0; }
+
+    @Override
+    public String toString() {
+        return "ProtocolConfig{coalesceRequests=" + coalesceRequests
+               + ", coalesceWindowMillis=" + coalesceWindowMillis
+               + ", routing=" + routing
+               + ", algorithm=" + algorithm
+               + ", maxGrantsPerVisit=" + maxGrantsPerVisit
+               + ", grantBudgetMillis=" + grantBudgetMillis
+               + ", groupSize=" + groupSize
+               + ", tokens=" + tokens
+               + ", tokenTimeoutMillis=" + tokenTimeoutMillis
+               + ", csMillis=" + csMillis
+               + ", priorityAgingMillis=" + priorityAgingMillis + "}";
+    }
+}
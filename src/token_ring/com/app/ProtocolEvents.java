@@ -0,0 +1,86 @@
+// ProtocolEvents.java
+package com.app;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Custom JFR events for the measurements RingMetrics keeps, so a recording
+// (-XX:StartFlightRecording or jcmd JFR.start) shows them next to GC, locks and
+// threads. Times are the node's clock: virtual ms under the Simulator. With no
+// recording running an event is never built, see RingMetrics.
+final class ProtocolEvents {
+    private ProtocolEvents() { }
+
+    @Name("token_ring.CsWait")
+    @Label("CS Wait")
+    @Category("Token Ring")
+    @Description("A node entered the CS; how long its request waited")
+    @StackTrace(false)
+    static final class CsWait extends Event {
+        @Label("Node") int node;
+        @Label("Token") int token;
+        @Label("Wait") @Timespan(Timespan.MILLISECONDS) long waitMillis;
+        @Label("Control Hops") @Description("Control token hops since its previous grant")
+        int hops;
+        @Label("Priority") String priority;
+        @Label("Late") @Description("Entered after the request's deadline") boolean late;
+    }
+
+    @Name("token_ring.TokenVisit")
+    @Label("Token Visit")
+    @Category("Token Ring")
+    @Description("A control token reached a node")
+    @StackTrace(false)
+    static final class TokenVisit extends Event {
+        @Label("Node") int node;
+        @Label("Token") int token;
+        @Label("Rotation")
+        @Description("Since this token last reached this node; 0 on its first visit")
+        @Timespan(Timespan.MILLISECONDS) long rotationMillis;
+        @Label("Queue Depth") int queueDepth;
+    }
+
+    @Name("token_ring.RequestDelivered")
+    @Label("Request Delivered")
+    @Category("Token Ring")
+    @Description("A request token's requests were merged into a control token")
+    @StackTrace(false)
+    static final class RequestDelivered extends Event {
+        @Label("Node") int node;
+        @Label("Origin") int origin;
+        @Label("Transit") @Timespan(Timespan.MILLISECONDS) long transitMillis;
+        @Label("Hops") int hops;
+        @Label("Requests") int requests;
+    }
+
+    @Name("token_ring.Checkpoint")
+    @Label("Checkpoint")
+    @Category("Token Ring")
+    @Description("The global ring was written to its checkpoint file")
+    @StackTrace(false)
+    static final class Checkpoint extends Event {
+        @Label("Nodes") int nodes;
+        @Label("Bytes") int bytes;
+        @Label("Capture") @Timespan(Timespan.MICROSECONDS) long captureMicros;
+        @Label("Longest Pause")
+        @Description("The longest any one node stopped to copy its state")
+        @Timespan(Timespan.MICROSECONDS) long pauseMicros;
+        @Label("Write") @Timespan(Timespan.MICROSECONDS) long writeMicros;
+    }
+
+    @Name("token_ring.Restore")
+    @Label("Restore")
+    @Category("Token Ring")
+    @Description("The global ring was rebuilt from a checkpoint file")
+    @StackTrace(false)
+    static final class Restore extends Event {
+        @Label("Nodes") int nodes;
+        @Label("Requests") @Description("Pending requests restored") int requests;
+        @Label("Restore") @Timespan(Timespan.MICROSECONDS) long restoreMicros;
+    }
+}
@@ -0,0 +1,103 @@
+// Raymond.java
+package com.app;
+
+// Raymond's tree-based mutual exclusion. Members form a fixed binary tree by ring
+// position, rooted at position 0 where the privilege starts. Each member points
+// at its neighbour on the way to the privilege (holder) and queues the neighbours
+// that asked it, itself included. A request travels one edge at a time towards the
+// holder, asking only once per member however many queue behind it, and the
+// privilege comes back down the same path: O(log n) messages per entry. Positions
+// are fixed at first use, so membership must stay fixed.
+final class Raymond implements MutexAlgorithm {
+    // Asks the holder side for the privilege on behalf of the sender's subtree
+    static final class Request extends RequestToken {
+        Request(int sender) {
+            super(sender);
+        }
+
+        @Override
+        public String toString() {
+            return "Raymond.Request{from=" + getOriginNodeId() + "}";
+        }
+    }
+
+    private final Node node;
+    // Towards the privilege; node itself while we hold it
+    private Node holder = null;
+    private final RequestQueue waiting = new RequestQueue(4);
+    private boolean asked = false;
+
+    Raymond(Node node) {
+        this.node = node;
+    }
+
+    @Override
+    public void request() {
+        waiting.add(node.getNodeId());
+        assignPrivilege();
+        askHolder();
+    }
+
+    @Override
+    public void release() {
+        if (node.isRequesting()) {
+            waiting.add(node.getNodeId());
+        }
+        assignPrivilege();
+        askHolder();
+    }
+
+    @Override
+    public boolean receive(Object message) {
+        if (message instanceof Request) {
+            waiting.add(((Request) message).getOriginNodeId());
+        } else if (message instanceof ControlToken) {
+            holder = node;
+            node.holdPrivilege((ControlToken) message);
+        } else {
+            return false;
+        }
+        assignPrivilege();
+        askHolder();
+        return true;
+    }
+
+    @Override
+    public void poll() {
+    }
+
+    // Holding it idle: the longest waiting neighbour, or we ourselves, get it
+    private void assignPrivilege() {
+        if (holder() != node || node.getState() == Node.NodeState.IN_CS || waiting.isEmpty()) {
+            return;
+        }
+        int next = waiting.poll();
+        asked = false;
+        if (next == node.getNodeId()) {
+            node.grant();
+            return;
+        }
+        RingSnapshot members = node.currentRing();
+        holder = members.get(members.indexOfId(next));
+        node.sendPrivilege(holder, node.heldToken());
+    }
+
+    private void askHolder() {
+        if (holder() != node && !waiting.isEmpty() && !asked) {
+            asked = true;
+            node.sendRequest(holder, new Request(node.getNodeId()));
+        }
+    }
+
+    private Node holder() {
+        if (holder == null) {
+            if (node.heldToken() != null) {
+                holder = node;
+            } else {
+                RingSnapshot members = node.currentRing();
+                holder = members.get((members.indexOf(node) - 1) / 2);
+            }
+        }
+        return holder;
+    }
+}
@@ -0,0 +1,342 @@
+// RequestQueue.java
+package com.app;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+// FIFO of node IDs without duplicates. Arrival order lives in an int ring buffer
+// and membership in a bitset, so add/contains are O(1) and nothing is boxed.
+//
+// Priority scheduling: the first ID added with a due time turns the queue into a
+// schedule. The same array then holds a binary min-heap on (due, arrival order),
+// with each ID's slot indexed by ID, so peek is O(1) and add, poll, remove and
+// lowering a due time are O(log n). IDs queued without one are due last, in FIFO
+// order among themselves. get() and forEach() then run in heap order, toArray() in
+// the order IDs come out. clear() turns a schedule back into a FIFO.
+public final class RequestQueue {
+    private int[] ring;
+    private int head = 0;
+    private int size = 0;
+    private long[] members;
+    // Schedule only: per slot, and each queued ID's slot
+    private long[] due = null;
+    private long[] arrival = null;
+    private int[] slotOf = null;
+    private long arrivals = 0;
+
+    public RequestQueue() {
+        this(16);
+    }
+
+    public RequestQueue(int capacity) {
+        int cap = Integer.highestOneBit(Math.max(capacity, 4) - 1) << 1;
+        this.ring = new int[cap];
+        this.members = new long[1];
+    }
+
+    public RequestQueue(RequestQueue other) {
+        this.ring = other.ring.clone();
+        this.head = other.head;
+        this.size = other.size;
+        this.members = other.members.clone();
+        if (other.due != null) {
+            this.due = other.due.clone();
+            this.arrival = other.arrival.clone();
+            this.slotOf = other.slotOf.clone();
+            this.arrivals = other.arrivals;
+        }
+    }
+
+    public boolean add(int nodeId) {
+        if (due != null) {
+            return add(nodeId, Long.MAX_VALUE);
+        }
+        if (nodeId < 0) {
+            throw new IllegalArgumentException("Negative node ID: " + nodeId);
+        }
+        if (contains(nodeId)) {
+            return false;
+        }
+        setMember(nodeId);
+
+        if (size == ring.length) {
+            grow();
+        }
+        ring[(head + size) & (ring.length - 1)] = nodeId;
+        size++;
+        return true;
+    }
+
+    // Queues nodeId due at dueMillis; if already queued, the earlier due time wins
+    public boolean add(int nodeId, long dueMillis) {
+        if (nodeId < 0) {
+            throw new IllegalArgumentException("Negative node ID: " + nodeId);
+        }
+        if (due == null) {
+            schedule();
+        }
+        if (contains(nodeId)) {
+            int slot = slotOf[nodeId];
+            if (dueMillis < due[slot]) {
+                due[slot] = dueMillis;
+                siftUp(slot);
+            }
+            return false;
+        }
+        setMember(nodeId);
+        if (size == ring.length) {
+            grow();
+        }
+        if (nodeId >= slotOf.length) {
+            slotOf = Arrays.copyOf(slotOf, Math.max(nodeId + 1, slotOf.length * 2));
+        }
+        int slot = size++;
+        place(slot, nodeId, dueMillis, arrivals++);
+        siftUp(slot);
+        return true;
+    }
+
+    // Appends, in their order, every ID of other that is not queued yet; a schedule
+    // merges due times as well
+    public void addAll(RequestQueue other) {
+        if (other == this) {
+            return;
+        }
+        if (other.due != null) {
+            // In the order they come out, so IDs due together keep their arrival order
+            for (int nodeId : other.toArray()) {
+                add(nodeId, other.getDue(nodeId));
+            }
+            return;
+        }
+        if (containsAll(other)) {
+            return;
+        }
+        int mask = other.ring.length - 1;
+        for (int i = 0; i < other.size; i++) {
+            add(other.ring[(other.head + i) & mask]);
+        }
+    }
+
+    public boolean containsAll(RequestQueue other) {
+        long[] theirs = other.members;
+        for (int w = 0; w < theirs.length; w++) {
+            long ours = w < members.length ? members[w] : 0L;
+            if ((theirs[w] & ~ours) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int poll() {
+        int nodeId = peek();
+        members[nodeId >>> 6] &= ~(1L << nodeId);
+        if (due != null) {
+            removeSlot(0);
+            return nodeId;
+        }
+        head = (head + 1) & (ring.length - 1);
+        size--;
+        return nodeId;
+    }
+
+    // Removes nodeId wherever it is queued; O(size), or O(log size) in a schedule
+    public boolean remove(int nodeId) {
+        if (!contains(nodeId)) {
+            return false;
+        }
+        members[nodeId >>> 6] &= ~(1L << nodeId);
+        if (due != null) {
+            removeSlot(slotOf[nodeId]);
+            return true;
+        }
+        int mask = ring.length - 1;
+        int i = 0;
+        while (ring[(head + i) & mask] != nodeId) {
+            i++;
+        }
+        for (; i + 1 < size; i++) {
+            ring[(head + i) & mask] = ring[(head + i + 1) & mask];
+        }
+        size--;
+        return true;
+    }
+
+    // Oldest ID, or in a schedule the one due first
+    public int peek() {
+        if (size == 0) {
+            throw new NoSuchElementException("Request queue is empty");
+        }
+        return ring[head];
+    }
+
+    public boolean contains(int nodeId) {
+        int word = nodeId >>> 6;
+        return nodeId >= 0 && word < members.length && (members[word] & (1L << nodeId)) != 0;
+    }
+
+    public boolean isScheduled() {
+        return due != null;
+    }
+
+    // When nodeId is due; Long.MAX_VALUE if it has no due time or is not queued
+    public long getDue(int nodeId) {
+        return due != null && contains(nodeId) ? due[slotOf[nodeId]] : Long.MAX_VALUE;
+    }
+
+    // Position 0 is the head of the queue
+    public int get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " of " + size);
+        }
+        return ring[(head + index) & (ring.length - 1)];
+    }
+
+    public void forEach(IntConsumer action) {
+        int mask = ring.length - 1;
+        for (int i = 0; i < size; i++) {
+            action.accept(ring[(head + i) & mask]);
+        }
+    }
+
+    // Every queued ID in the order poll() would return them
+    public int[] toArray() {
+        int[] ids = new int[size];
+        if (due == null) {
+            int mask = ring.length - 1;
+            for (int i = 0; i < size; i++) {
+                ids[i] = ring[(head + i) & mask];
+            }
+            return ids;
+        }
+        RequestQueue drained = new RequestQueue(this);
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = drained.poll();
+        }
+        return ids;
+    }
+
+    public void clear() {
+        Arrays.fill(members, 0L);
+        head = 0;
+        size = 0;
+        due = null;
+        arrival = null;
+        slotOf = null;
+        arrivals = 0;
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    private void setMember(int nodeId) {
+        int word = nodeId >>> 6;
+        if (word >= members.length) {
+            members = Arrays.copyOf(members, Math.max(word + 1, members.length * 2));
+        }
+        members[word] |= 1L << nodeId;
+    }
+
+    private void grow() {
+        int[] bigger = new int[ring.length * 2];
+        int firstPart = Math.min(size, ring.length - head);
+        System.arraycopy(ring, head, bigger, 0, firstPart);
+        System.arraycopy(ring, 0, bigger, firstPart, size - firstPart);
+        ring = bigger;
+        head = 0;
+        if (due != null) {
+            due = Arrays.copyOf(due, ring.length);
+            arrival = Arrays.copyOf(arrival, ring.length);
+        }
+    }
+
+    // From FIFO to schedule: the IDs so far, due last in their order, already form
+    // a valid heap once laid out from slot 0
+    private void schedule() {
+        int[] slots = new int[ring.length];
+        int mask = ring.length - 1;
+        int maxId = 0;
+        for (int i = 0; i < size; i++) {
+            slots[i] = ring[(head + i) & mask];
+            maxId = Math.max(maxId, slots[i]);
+        }
+        ring = slots;
+        head = 0;
+        due = new long[ring.length];
+        arrival = new long[ring.length];
+        slotOf = new int[Math.max(64, maxId + 1)];
+        for (int i = 0; i < size; i++) {
+            place(i, ring[i], Long.MAX_VALUE, arrivals++);
+        }
+    }
+
+    private void place(int slot, int nodeId, long dueMillis, long order) {
+        ring[slot] = nodeId;
+        due[slot] = dueMillis;
+        arrival[slot] = order;
+        slotOf[nodeId] = slot;
+    }
+
+    // The caller has already cleared the member bit
+    private void removeSlot(int slot) {
+        int last = --size;
+        if (slot != last) {
+            place(slot, ring[last], due[last], arrival[last]);
+            siftDown(slot);
+            siftUp(slot);
+        }
+    }
+
+    private boolean before(int a, int b) {
+        return due[a] < due[b] || (due[a] == due[b] && arrival[a] < arrival[b]);
+    }
+
+    private void swap(int a, int b) {
+        int id = ring[a];
+        long d = due[a];
+        long o = arrival[a];
+        place(a, ring[b], due[b], arrival[b]);
+        place(b, id, d, o);
+    }
+
+    private void siftUp(int slot) {
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (!before(slot, parent)) {
+                return;
+            }
+            swap(slot, parent);
+            slot = parent;
+        }
+    }
+
+    private void siftDown(int slot) {
+        while (true) {
+            int child = 2 * slot + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && before(child + 1, child)) {
+                child++;
+            }
+            if (!before(child, slot)) {
+                return;
+            }
+            swap(slot, child);
+            slot = child;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        int mask = ring.length - 1;
+        for (int i = 0; i < size; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(ring[(head + i) & mask]);
+        }
+        return sb.append(']').toString();
+    }
+}
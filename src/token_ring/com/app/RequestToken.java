@@ -0,0 +1,60 @@
+// RequestToken.java
+package com.app;
+
+public class RequestToken {
+    private final RequestQueue requests = new RequestQueue();
+    private final int originNodeId;
+    // Metrics only: when the origin sent it, and hops taken since
+    private long createdAt = 0;
+    private int hops = 0;
+
+    public RequestToken(int originNodeId) {
+        this.originNodeId = originNodeId;
+        this.requests.add(originNodeId);
+    }
+
+    public void addRequest(int nodeId) {
+        requests.add(nodeId);
+    }
+
+    public void addRequest(int nodeId, long dueMillis) {
+        requests.add(nodeId, dueMillis);
+    }
+
+    public void addAllRequests(RequestQueue newRequests) {
+        requests.addAll(newRequests);
+    }
+
+    public int getOriginNodeId() {
+        return originNodeId;
+    }
+
+    void stamp(long nowMillis) {
+        createdAt = nowMillis;
+    }
+
+    void countHop() {
+        hops++;
+    }
+
+    void setHops(int hops) {
+        this.hops = hops;
+    }
+
+    long getCreatedAt() { return createdAt; }
+    int getHops() { return hops; }
+
+    // Live queue, not a copy - read it, don't modify it
+    public RequestQueue getRequests() {
+        return requests;
+    }
+
+    public boolean contains(int nodeId) {
+        return requests.contains(nodeId);
+    }
+
+    @Override
+    public String toString() {
+        return "RequestToken{origin=" + originNodeId + ", requests=" + requests + "}";
+    }
+}
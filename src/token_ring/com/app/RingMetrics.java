@@ -0,0 +1,191 @@
+// RingMetrics.java
+package com.app;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+// How well the ring performs, recorded by the nodes as it runs: request-to-enter
+// wait, overall and per Priority class, with deadlines missed; synchronization
+// delay (from a CS exit to the next entry while requests wait; with one token);
+// token rotation time (between two visits of one token to one node); request
+// token transit time and hops; control queue depth at each visit; control hops and
+// messages per CS entry; and checkpoint capture, node pause, write and restore
+// times (see Checkpoint). Histograms and counters are lock-free, so node threads
+// share one instance; each measurement is also emitted as a JFR event (see
+// ProtocolEvents) when a recording is running.
+public final class RingMetrics {
+    // Live nodes record here unless given their own, as the Simulator's are
+    public static final RingMetrics GLOBAL = new RingMetrics();
+
+    private final LatencyHistogram waits = new LatencyHistogram();
+    private final LatencyHistogram[] classWaits = new LatencyHistogram[Priority.values().length];
+    private final LongAdder deadlinesMissed = new LongAdder();
+    private final LatencyHistogram rotations = new LatencyHistogram();
+    private final LatencyHistogram requestTransits = new LatencyHistogram();
+    private final LatencyHistogram requestHops = new LatencyHistogram();
+    private final LatencyHistogram queueDepths = new LatencyHistogram();
+    private final LatencyHistogram hopsPerEntry = new LatencyHistogram();
+    private final LatencyHistogram syncDelays = new LatencyHistogram();
+    private volatile long lastExitMillis = Long.MIN_VALUE;
+    // Checkpoint timings, in microseconds
+    private final LatencyHistogram checkpointCaptures = new LatencyHistogram();
+    private final LatencyHistogram checkpointPauses = new LatencyHistogram();
+    private final LatencyHistogram checkpointWrites = new LatencyHistogram();
+    private volatile long restoreMicros = -1;
+
+    // Claims travel as request tokens and count as such
+    private final LongAdder controlMessages = new LongAdder();
+    private final LongAdder requestMessages = new LongAdder();
+
+    public RingMetrics() {
+        for (int i = 0; i < classWaits.length; i++) {
+            classWaits[i] = new LatencyHistogram();
+        }
+    }
+
+    void csEntered(int node, int token, long now, long waitMillis, int hops, Priority priority,
+                   boolean late) {
+        waits.record(waitMillis);
+        classWaits[priority.ordinal()].record(waitMillis);
+        if (late) {
+            deadlinesMissed.increment();
+        }
+        hopsPerEntry.record(hops);
+        long lastExit = lastExitMillis;
+        if (lastExit != Long.MIN_VALUE && now - waitMillis <= lastExit) {
+            // Requested before the CS was last released, so it waited on the handover
+            syncDelays.record(now - lastExit);
+        }
+        ProtocolEvents.CsWait event = new ProtocolEvents.CsWait();
+        if (event.isEnabled()) {
+            event.node = node;
+            event.token = token;
+            event.waitMillis = waitMillis;
+            event.hops = hops;
+            event.priority = priority.label();
+            event.late = late;
+            event.commit();
+        }
+    }
+
+    void csExited(long now) {
+        lastExitMillis = now;
+    }
+
+    // rotationMillis is negative on a token's first visit to the node
+    void tokenVisited(int node, int token, long rotationMillis, int queueDepth) {
+        if (rotationMillis >= 0) {
+            rotations.record(rotationMillis);
+        }
+        queueDepths.record(queueDepth);
+        ProtocolEvents.TokenVisit event = new ProtocolEvents.TokenVisit();
+        if (event.isEnabled()) {
+            event.node = node;
+            event.token = token;
+            event.rotationMillis = Math.max(0, rotationMillis);
+            event.queueDepth = queueDepth;
+            event.commit();
+        }
+    }
+
+    void requestDelivered(int node, RequestToken requestToken, long now) {
+        long transit = Math.max(0, now - requestToken.getCreatedAt());
+        requestTransits.record(transit);
+        requestHops.record(requestToken.getHops());
+        ProtocolEvents.RequestDelivered event = new ProtocolEvents.RequestDelivered();
+        if (event.isEnabled()) {
+            event.node = node;
+            event.origin = requestToken.getOriginNodeId();
+            event.transitMillis = transit;
+            event.hops = requestToken.getHops();
+            event.requests = requestToken.getRequests().size();
+            event.commit();
+        }
+    }
+
+    void controlMessage() { controlMessages.increment(); }
+    void requestMessage() { requestMessages.increment(); }
+
+    void checkpointed(int nodes, int bytes, long captureMicros, long pauseMicros, long writeMicros) {
+        checkpointCaptures.record(captureMicros);
+        checkpointPauses.record(pauseMicros);
+        checkpointWrites.record(writeMicros);
+        ProtocolEvents.Checkpoint event = new ProtocolEvents.Checkpoint();
+        if (event.isEnabled()) {
+            event.nodes = nodes;
+            event.bytes = bytes;
+            event.captureMicros = captureMicros;
+            event.pauseMicros = pauseMicros;
+            event.writeMicros = writeMicros;
+            event.commit();
+        }
+    }
+
+    void restored(int nodes, int requests, long micros) {
+        restoreMicros = micros;
+        ProtocolEvents.Restore event = new ProtocolEvents.Restore();
+        if (event.isEnabled()) {
+            event.nodes = nodes;
+            event.requests = requests;
+            event.restoreMicros = micros;
+            event.commit();
+        }
+    }
+
+    public LatencyHistogram getWaits() { return waits; }
+    public LatencyHistogram getWaits(Priority priority) { return classWaits[priority.ordinal()]; }
+    public long getDeadlinesMissed() { return deadlinesMissed.sum(); }
+    public LatencyHistogram getRotations() { return rotations; }
+    public LatencyHistogram getRequestTransits() { return requestTransits; }
+    public LatencyHistogram getRequestHops() { return requestHops; }
+    public LatencyHistogram getQueueDepths() { return queueDepths; }
+    public LatencyHistogram getHopsPerEntry() { return hopsPerEntry; }
+    public LatencyHistogram getSyncDelays() { return syncDelays; }
+    public LatencyHistogram getCheckpointCaptures() { return checkpointCaptures; }
+    public LatencyHistogram getCheckpointPauses() { return checkpointPauses; }
+    public LatencyHistogram getCheckpointWrites() { return checkpointWrites; }
+    // -1 unless the ring was restored
+    public long getRestoreMicros() { return restoreMicros; }
+    public long getControlMessages() { return controlMessages.sum(); }
+    public long getRequestMessages() { return requestMessages.sum(); }
+
+    public double getMessagesPerEntry() {
+        return (getControlMessages() + getRequestMessages()) / (double) Math.max(1, waits.getCount());
+    }
+
+    // One line per measurement, percentiles included
+    public String report() {
+        StringBuilder out = new StringBuilder();
+        line(out, "CS wait ms", waits);
+        if (waits.getCount() > classWaits[Priority.NORMAL.ordinal()].getCount()) {
+            // Only worth a line each once some request was not NORMAL
+            for (Priority priority : Priority.values()) {
+                line(out, "  " + priority.label(), classWaits[priority.ordinal()]);
+            }
+            out.append(String.format(Locale.ROOT, "  %-20s %d%n", "deadlines missed",
+                                     getDeadlinesMissed()));
+        }
+        line(out, "sync delay ms", syncDelays);
+        line(out, "rotation ms", rotations);
+        line(out, "request transit ms", requestTransits);
+        line(out, "request hops", requestHops);
+        line(out, "queue depth", queueDepths);
+        line(out, "control hops/entry", hopsPerEntry);
+        out.append(String.format(Locale.ROOT, "  %-20s %.2f (%d control, %d request)%n",
+                                 "messages/entry", getMessagesPerEntry(), getControlMessages(),
+                                 getRequestMessages()));
+        if (checkpointCaptures.getCount() > 0) {
+            line(out, "checkpoint us", checkpointCaptures);
+            line(out, "  node pause us", checkpointPauses);
+            line(out, "  write us", checkpointWrites);
+        }
+        if (restoreMicros >= 0) {
+            out.append(String.format(Locale.ROOT, "  %-20s %d%n", "restore us", restoreMicros));
+        }
+        return out.toString();
+    }
+
+    private static void line(StringBuilder out, String name, LatencyHistogram histogram) {
+        out.append(String.format("  %-20s %s%n", name, histogram.summary()));
+    }
+}
@@ -0,0 +1,129 @@
+// RingProcess.java
+package com.app;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.app.EventLog.Level;
+
+// One ring member per process, the processes joined by NioTransport over localhost.
+// Every process builds the same flat ring of ids 0..size-1, with a live Node for
+// its own id and stubs for the rest; the usual token_ring.* properties set the
+// protocol, and token_ring.logLevel defaults to WARN here. After the given time
+// each member prints its CS entries, its RingMetrics and the transport's hop
+// latency and bytes on the wire.
+// Usage: RingProcess <node id> <ring size> [seconds]   runs one member
+//        RingProcess launch <ring size> [seconds]       runs the whole ring, one JVM
+//                                                       per member, with these
+//                                                       token_ring.* properties
+public class RingProcess {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: RingProcess <node id> <ring size> [seconds]\n"
+                               + "       RingProcess launch <ring size> [seconds]");
+            System.exit(2);
+        }
+        int size = Integer.parseInt(args[1]);
+        long seconds = args.length > 2 ? Long.parseLong(args[2]) : 60;
+        if (args[0].equals("launch")) {
+            launch(size, seconds);
+        } else {
+            run(Integer.parseInt(args[0]), size, seconds);
+        }
+    }
+
+    private static void run(int id, int size, long seconds) throws IOException, InterruptedException {
+        ProtocolConfig config = ProtocolConfig.DEFAULT;
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException("Node " + id + " is not in a ring of " + size);
+        }
+        if (config.getTokens() > size) {
+            throw new IllegalArgumentException(config.getTokens() + " tokens for " + size + " nodes");
+        }
+        if (config.getGroupSize() > 0 && config.getGroupSize() < size) {
+            throw new IllegalArgumentException("Processes form a flat ring, not groups of "
+                                               + config.getGroupSize());
+        }
+        if (config.getAlgorithm() != ProtocolConfig.Algorithm.RING) {
+            // WireCodec carries the ring's tokens only
+            throw new IllegalArgumentException("Processes run the ring algorithm, not "
+                                               + config.getAlgorithm());
+        }
+        if (System.getProperty("token_ring.logLevel") == null) {
+            EventLog.setLevel(Level.WARN);
+        }
+
+        NioTransport transport = new NioTransport();
+        Node[] members = new Node[size];
+        for (int i = 0; i < size; i++) {
+            members[i] = new Node(i, transport, config, i == id);
+            if (i != id) {
+                final int peer = i;
+                members[i].setRemote(message -> transport.send(peer, message));
+            }
+        }
+        RingSnapshot ring = RingSnapshot.of(members);
+        for (int i = 0; i < size; i++) {
+            members[i].setNextNode(members[(i + 1) % size]);
+            members[i].setDetachedRing(ring);
+        }
+        Node local = members[id];
+        // Same placement as the Simulator: tokens spread evenly round the ring
+        List<ControlToken> tokens = new ArrayList<>(Collections.nCopies(config.getTokens(), null));
+        local.setTokenList(tokens);
+        for (int k = 0; k < tokens.size(); k++) {
+            if ((int) ((long) k * size / tokens.size()) == id) {
+                tokens.set(k, local.grantInitialToken(k));
+            }
+        }
+
+        transport.host(local);
+        transport.start();
+        local.start();
+        if (seconds > 0) {
+            Thread.sleep(seconds * 1000);
+        } else {
+            Thread.currentThread().join();
+        }
+        local.stop();
+
+        System.out.print(String.format("Node-%d of %d: %d CS entries, %d pending%n", id, size,
+                                       local.getCsEntries(), local.getPendingRequests())
+                         + RingMetrics.GLOBAL.report() + transport.report());
+        transport.close();
+        System.exit(0);
+    }
+
+    // Child JVMs on the same module path, passed every token_ring.* property
+    private static void launch(int size, long seconds) throws IOException, InterruptedException {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        List<Process> children = new ArrayList<>();
+        for (int id = 0; id < size; id++) {
+            List<String> command = new ArrayList<>();
+            command.add(java);
+            for (Map.Entry<Object, Object> property : System.getProperties().entrySet()) {
+                if (property.getKey().toString().startsWith("token_ring.")) {
+                    command.add("-D" + property.getKey() + "=" + property.getValue());
+                }
+            }
+            command.add("-p");
+            command.add(System.getProperty("jdk.module.path"));
+            command.add("-m");
+            command.add("token_ring/" + RingProcess.class.getName());
+            command.add(String.valueOf(id));
+            command.add(String.valueOf(size));
+            command.add(String.valueOf(seconds));
+            children.add(new ProcessBuilder(command).inheritIO().start());
+        }
+        int failed = 0;
+        for (Process child : children) {
+            if (child.waitFor() != 0) {
+                failed++;
+            }
+        }
+        System.exit(failed == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,127 @@
+// RingSnapshot.java
+package com.app;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+// Immutable view of ring membership. Writers build a new snapshot for every join or
+// leave and publish it atomically, so readers (the protocol, Graph's clock thread) never
+// take a lock and always see a consistent ring. The successor of member i is member
+// i + 1, wrapping around. Screen positions and the id index are computed lazily on
+// first use, so churn does not pay for them.
+public final class RingSnapshot {
+    // Ring layout on the Graph panel
+    public static final int CENTER_X = 450, CENTER_Y = 325, RADIUS = 200;
+
+    public static final RingSnapshot EMPTY = new RingSnapshot(0, new Node[0]);
+
+    private final long version;
+    private final Node[] members;
+    // Lazy caches; racing threads compute identical arrays, so no lock needed
+    private volatile int[] layout;     // x at 2i, y at 2i + 1
+    private volatile int[] indexById;  // -1 where the id is not a member
+
+    private RingSnapshot(long version, Node[] members) {
+        this.version = version;
+        this.members = members;
+    }
+
+    RingSnapshot withInserted(int index, Node node) {
+        Node[] next = new Node[members.length + 1];
+        System.arraycopy(members, 0, next, 0, index);
+        next[index] = node;
+        System.arraycopy(members, index, next, index + 1, members.length - index);
+        return new RingSnapshot(version + 1, next);
+    }
+
+    RingSnapshot withAppended(Node[] nodes) {
+        Node[] next = Arrays.copyOf(members, members.length + nodes.length);
+        System.arraycopy(nodes, 0, next, members.length, nodes.length);
+        return new RingSnapshot(version + 1, next);
+    }
+
+    RingSnapshot withRemoved(int index) {
+        Node[] next = new Node[members.length - 1];
+        System.arraycopy(members, 0, next, 0, index);
+        System.arraycopy(members, index + 1, next, index, members.length - index - 1);
+        return new RingSnapshot(version + 1, next);
+    }
+
+    // A whole new membership, e.g. a ring rebuilt from a trace
+    RingSnapshot withMembers(Node[] nodes) {
+        return new RingSnapshot(version + 1, nodes.clone());
+    }
+
+    public long getVersion() { return version; }
+    public int size() { return members.length; }
+    public boolean isEmpty() { return members.length == 0; }
+    public Node get(int index) { return members[index]; }
+    public Node successorOf(int index) { return members[(index + 1) % members.length]; }
+
+    // Rings built outside the global membership, e.g. by the Simulator
+    static RingSnapshot of(Node[] members) {
+        return new RingSnapshot(0, members.clone());
+    }
+
+    // Ring position of a node, or -1 if it is not a member of this snapshot
+    public int indexOf(Node node) {
+        int index = indexOfId(node.getNodeId());
+        return index >= 0 && members[index] == node ? index : -1;
+    }
+
+    // Ring position of the member with this id, or -1
+    public int indexOfId(int id) {
+        int[] index = indexById;
+        if (index == null) {
+            int maxId = -1;
+            for (Node member : members) {
+                maxId = Math.max(maxId, member.getNodeId());
+            }
+            index = new int[maxId + 1];
+            Arrays.fill(index, -1);
+            for (int i = 0; i < members.length; i++) {
+                index[members[i].getNodeId()] = i;
+            }
+            indexById = index;
+        }
+        return id >= 0 && id < index.length ? index[id] : -1;
+    }
+
+    public int x(int index) { return layout()[2 * index]; }
+    public int y(int index) { return layout()[2 * index + 1]; }
+
+    private int[] layout() {
+        int[] xy = layout;
+        if (xy == null) {
+            xy = new int[2 * members.length];
+            // Walk the circle by repeated rotation instead of cos/sin per node
+            double stepCos = Math.cos(2 * Math.PI / members.length);
+            double stepSin = Math.sin(2 * Math.PI / members.length);
+            double x = 1, y = 0;
+            for (int i = 0; i < members.length; i++) {
+                xy[2 * i] = CENTER_X + (int) (RADIUS * x);
+                xy[2 * i + 1] = CENTER_Y + (int) (RADIUS * y);
+                double nextX = x * stepCos - y * stepSin;
+                y = x * stepSin + y * stepCos;
+                x = nextX;
+            }
+            layout = xy;
+        }
+        return xy;
+    }
+
+    // Read-only List over the members, without copying
+    public List<Node> asList() {
+        return new MemberList();
+    }
+
+    private final class MemberList extends AbstractList<Node> implements RandomAccess {
+        @Override
+        public Node get(int index) { return members[index]; }
+
+        @Override
+        public int size() { return members.length; }
+    }
+}
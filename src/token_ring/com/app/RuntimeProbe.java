@@ -0,0 +1,129 @@
+// RuntimeProbe.java
+package com.app;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Measures memory per node and control-token rotation time for a headless ring on
+// each NodeRuntime. Usage: RuntimeProbe [platform|virtual|shared] [sizes, e.g. 10,1000]
+public class RuntimeProbe implements TokenTransport {
+    private static final int ROTATIONS = 3;
+    private static final long TIMEOUT_MILLIS = 60_000;
+
+    private final ExecutorService delivery = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "probe-delivery");
+        t.setDaemon(true);
+        return t;
+    });
+    private Node head;
+    private volatile int rotations = 0;
+    private volatile long firstRotationNanos = 0;
+    private volatile long lastRotationNanos = 0;
+
+    @Override
+    public void sendControlToken(Node from, Node to, Runnable onArrival) {
+        if (to == head) {
+            lastRotationNanos = System.nanoTime();
+            if (rotations++ == 0) {
+                firstRotationNanos = lastRotationNanos;
+            }
+        }
+        delivery.execute(onArrival);
+    }
+
+    @Override
+    public void sendRequestToken(Node from, Node to, RequestToken token, Runnable onArrival) {
+        delivery.execute(onArrival);
+    }
+
+    private void measure(int nodeCount) throws InterruptedException {
+        long heapBefore = usedHeap();
+        long rssBefore = residentSetSize();
+        
+        Node[] nodes = new Node[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[i] = new Node(i, this, ProtocolConfig.DEFAULT, false);
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[i].setNextNode(nodes[(i + 1) % nodeCount]);
+        }
+        head = nodes[0];
+        rotations = 0;
+        nodes[0].grantInitialToken(0);
+        
+        long start = System.nanoTime();
+        for (Node node : nodes) {
+            node.start();
+        }
+        long startedNanos = System.nanoTime() - start;
+        
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        // The first lap starts whenever the holder's first poll fires, so time from there
+        while (rotations <= ROTATIONS && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        int done = rotations - 1;
+        double rotationMillis = done <= 0 ? Double.NaN
+            : (lastRotationNanos - firstRotationNanos) / 1e6 / done;
+        
+        long heapPerNode = (usedHeap() - heapBefore) / nodeCount;
+        long rssPerNode = rssBefore < 0 ? -1 : (residentSetSize() - rssBefore) / nodeCount;
+        for (Node node : nodes) {
+            node.stop();
+        }
+        
+        System.out.printf("%-17s %8d %10.1f %10d %10d %12.1f %4d%n",
+                          Node.getRuntime(), nodeCount, startedNanos / 1e6,
+                          heapPerNode, rssPerNode, rotationMillis, done);
+        // Let stopped threads wind down before the next measurement
+        Thread.sleep(200);
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    // VmRSS in bytes, or -1 where /proc is not available
+    private static long residentSetSize() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // fall through
+        }
+        return -1;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        // Pure rotation: nobody requests the CS, so polls are idle wakeups.
+        // Must be set before Node is first touched.
+        System.setProperty("token_ring.requestProbability",
+                           System.getProperty("token_ring.requestProbability", "0"));
+        System.setProperty("token_ring.pollMillis",
+                           System.getProperty("token_ring.pollMillis", "1000"));
+        if (args.length > 0) {
+            System.setProperty("token_ring.runtime", args[0]);
+        }
+        String sizes = args.length > 1 ? args[1] : "10,100,1000,10000";
+        
+        RuntimeProbe probe = new RuntimeProbe();
+        System.out.printf("%-17s %8s %10s %10s %10s %12s %4s%n",
+                          "runtime", "nodes", "start ms", "heap B/n", "rss B/n", "rotation ms", "rot");
+        for (String size : sizes.split(",")) {
+            probe.measure(Integer.parseInt(size.trim()));
+        }
+        probe.delivery.shutdownNow();
+        TimeUnit.MILLISECONDS.sleep(10);
+    }
+}
@@ -0,0 +1,401 @@
+// Simulator.java
+package com.app;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import com.app.workload.Arrival;
+import com.app.workload.HoldTime;
+import com.app.workload.Workload;
+
+// Headless discrete-event engine for the token ring. It drives the same Node
+// protocol code as the Swing app, but time is a virtual clock: every poll tick,
+// token hop and CS exit is a timestamped event in a priority queue, so nothing
+// sleeps and no Graph is needed. Every node is driven by this one thread.
+public class Simulator implements TokenTransport, NodeDriver {
+    // 20 animation ticks of 20 ms in Graph
+    public static final long HOP_MILLIS = 400;
+
+    private final PriorityQueue<Event> events = new PriorityQueue<>();
+    private final Node[] nodes;
+    private final List<ControlToken> tokens = new ArrayList<>();
+    private final RingMetrics metrics = new RingMetrics();
+    private final Random rand;
+    private final double requestProbability;
+    private long now = 0;
+    private long sequence = 0;
+
+    private long controlHops = 0;
+    private long requestHops = 0;
+    // Control token hops still to be dropped on the way, to exercise loss recovery
+    private int tokensToLose = 0;
+    private long tokensLost = 0;
+    private long arrivals = 0;
+
+    public Simulator(int nodeCount, long seed) {
+        this(nodeCount, seed, Node.REQUEST_PROBABILITY);
+    }
+
+    // With requestProbability 0 nodes never poll; drive them with request() instead
+    public Simulator(int nodeCount, long seed, double requestProbability) {
+        this(nodeCount, seed, requestProbability, ProtocolConfig.DEFAULT);
+    }
+
+    public Simulator(int nodeCount, long seed, double requestProbability, ProtocolConfig config) {
+        if (nodeCount < 1) {
+            throw new IllegalArgumentException("Ring needs at least one node: " + nodeCount);
+        }
+        int tokenCount = config.getTokens();
+        int groupSize = config.getGroupSize();
+        if (tokenCount > nodeCount) {
+            throw new IllegalArgumentException(tokenCount + " tokens for " + nodeCount + " nodes");
+        }
+        if (tokenCount > 1 && groupSize > 0 && groupSize < nodeCount) {
+            throw new IllegalArgumentException("k-token mode needs a flat ring, not groups of " + groupSize);
+        }
+        if (config.getAlgorithm() != ProtocolConfig.Algorithm.RING
+                && (tokenCount > 1 || (groupSize > 0 && groupSize < nodeCount))) {
+            throw new IllegalArgumentException(config.getAlgorithm() + " needs one token on a flat ring");
+        }
+        if (config.getAlgorithm() != ProtocolConfig.Algorithm.RING && config.isPriorityScheduling()) {
+            throw new IllegalArgumentException("Priority scheduling needs the ring algorithm, not "
+                                               + config.getAlgorithm());
+        }
+        this.rand = new Random(seed);
+        this.requestProbability = requestProbability;
+        this.nodes = new Node[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[i] = new Node(i, this, config, false);
+            nodes[i].bind(this);
+            nodes[i].setTokenList(tokens);
+            nodes[i].setMetrics(metrics);
+            nodes[i].trace(Trace.Kind.JOIN, -1, -1, i, 0);
+        }
+        if (groupSize > 0 && groupSize < nodeCount) {
+            linkGroups(groupSize);
+        } else {
+            linkRing(nodes);
+            // Spread the tokens evenly round the ring
+            for (int k = 0; k < tokenCount; k++) {
+                tokens.add(nodes[(int) ((long) k * nodeCount / tokenCount)].grantInitialToken(k));
+            }
+        }
+        
+        if (requestProbability > 0) {
+            for (Node node : nodes) {
+                schedule(Node.pollDelay(rand), () -> poll(node));
+            }
+        }
+    }
+
+    // One cycle through members
+    private static void linkRing(Node[] members) {
+        RingSnapshot snapshot = RingSnapshot.of(members);
+        for (int i = 0; i < members.length; i++) {
+            members[i].setNextNode(members[(i + 1) % members.length]);
+            members[i].setDetachedRing(snapshot);
+        }
+    }
+
+    // Ring of rings: consecutive runs of groupSize nodes form sub-rings led by their
+    // first member, and the leaders form the top ring carrying the global token
+    private void linkGroups(int groupSize) {
+        int groups = (nodes.length + groupSize - 1) / groupSize;
+        Node[] leaders = new Node[groups];
+        for (int g = 0; g < groups; g++) {
+            Node[] members = Arrays.copyOfRange(nodes, g * groupSize,
+                                                Math.min(nodes.length, (g + 1) * groupSize));
+            linkRing(members);
+            // Each sub-ring's token starts parked at its leader
+            tokens.add(members[0].grantInitialToken(g));
+            for (Node member : members) {
+                member.joinGroup(members[0]);
+            }
+            leaders[g] = members[0];
+        }
+        for (int g = 0; g < groups; g++) {
+            leaders[g].setNextLeader(leaders[(g + 1) % groups]);
+        }
+        leaders[0].grantGlobalToken();
+    }
+
+    // Makes a node ask for the CS at the current virtual time, unless it already has
+    // as many local requests outstanding as token_ring.maxPendingRequests allows
+    public void request(int nodeId) {
+        request(nodeId, Priority.NORMAL, 0);
+    }
+
+    // The same with a Priority class and a deadline in ms from now, 0 for none
+    public void request(int nodeId, Priority priority, long deadlineMillis) {
+        Node node = nodes[nodeId];
+        schedule(0, () -> {
+            if (node.getPendingRequests() < Node.MAX_PENDING_REQUESTS) {
+                node.requestCriticalSection(priority, deadlineMillis);
+            }
+        });
+    }
+
+    // Drives requests from a workload: each arrival becomes a request() at its virtual
+    // time, node indices wrapping round the ring. Arrivals already past are made now.
+    public void attach(Workload workload) {
+        scheduleArrival(workload, workload.next());
+    }
+
+    private void scheduleArrival(Workload workload, Arrival arrival) {
+        if (arrival == null) {
+            return;
+        }
+        schedule(Math.max(0, arrival.getTime() - now), () -> {
+            arrivals++;
+            request(Math.floorMod(arrival.getNode(), nodes.length), arrival.getPriority(),
+                    arrival.getDeadline());
+            scheduleArrival(workload, workload.next());
+        });
+    }
+
+    // Every node draws its CS durations from its own copy of the distribution, seeded
+    // from seed and its id, so runs repeat whatever order nodes enter in
+    public void setHoldTime(String spec, long seed) {
+        for (Node node : nodes) {
+            node.setHoldTime(HoldTime.parse(spec, seed * 31 + node.getNodeId()));
+        }
+    }
+
+    // The next control token to be sent anywhere vanishes in transit
+    public void loseControlToken() {
+        tokensToLose++;
+    }
+
+    public void schedule(long delay, Runnable action) {
+        events.add(new Event(now + delay, sequence++, action));
+    }
+
+    // Processes every event due at or before endTime, then parks the clock there
+    public void runUntil(long endTime) {
+        while (!events.isEmpty() && events.peek().time <= endTime) {
+            Event event = events.poll();
+            now = event.time;
+            event.action.run();
+        }
+        now = Math.max(now, endTime);
+    }
+
+    private void poll(Node node) {
+        node.step(rand, requestProbability);
+        schedule(Node.pollDelay(rand), () -> poll(node));
+    }
+
+    @Override
+    public void wake(Node node) {
+        // Never drain inline: the sender may itself be in the middle of a drain
+        schedule(0, node::drainMailbox);
+    }
+
+    @Override
+    public void schedule(Node node, long millis, Runnable task) {
+        schedule(millis, task);
+    }
+
+    @Override
+    public long nowMillis() {
+        return now;
+    }
+
+    @Override
+    public void sendControlToken(Node from, Node to, Runnable onArrival) {
+        controlHops++;
+        if (tokensToLose > 0) {
+            tokensToLose--;
+            tokensLost++;
+            return;
+        }
+        schedule(HOP_MILLIS, onArrival);
+    }
+
+    @Override
+    public void sendRequestToken(Node from, Node to, RequestToken token, Runnable onArrival) {
+        requestHops++;
+        schedule(HOP_MILLIS, onArrival);
+    }
+
+    // Getters
+    public long now() { return now; }
+    public int getNodeCount() { return nodes.length; }
+    public Node getNode(int nodeId) { return nodes[nodeId]; }
+    public List<ControlToken> getTokens() { return Collections.unmodifiableList(tokens); }
+    public long getControlHops() { return controlHops; }
+    public long getRequestHops() { return requestHops; }
+    public long getTokensLost() { return tokensLost; }
+    // Workload arrivals so far, dropped ones included
+    public long getArrivals() { return arrivals; }
+    // Every CS wait so far
+    public LatencyHistogram getWaitHistogram() { return metrics.getWaits(); }
+    public RingMetrics getMetrics() { return metrics; }
+
+    // Jain's index over CS entries per node: 1 when every node got the same share,
+    // 1/n when one node got them all
+    public double getFairness() {
+        double sum = 0, squares = 0;
+        for (Node node : nodes) {
+            long entries = node.getCsEntries();
+            sum += entries;
+            squares += (double) entries * entries;
+        }
+        return squares == 0 ? 1 : sum * sum / (nodes.length * squares);
+    }
+
+    public long getCsEntries() {
+        long total = 0;
+        for (Node node : nodes) total += node.getCsEntries();
+        return total;
+    }
+
+    public long getTotalWaitMillis() {
+        long total = 0;
+        for (Node node : nodes) total += node.getTotalWaitMillis();
+        return total;
+    }
+
+    public long getMaxWaitMillis() {
+        long max = 0;
+        for (Node node : nodes) max = Math.max(max, node.getMaxWaitMillis());
+        return max;
+    }
+
+    // Requests made but not yet served
+    public long getPendingRequests() {
+        long total = 0;
+        for (Node node : nodes) total += node.getPendingRequests();
+        return total;
+    }
+
+    public long getRequestTokensCreated() {
+        long total = 0;
+        for (Node node : nodes) total += node.getRequestTokensCreated();
+        return total;
+    }
+
+    public long getRequestTokensSuppressed() {
+        long total = 0;
+        for (Node node : nodes) total += node.getRequestTokensSuppressed();
+        return total;
+    }
+
+    public long getRequestsPiggybacked() {
+        long total = 0;
+        for (Node node : nodes) total += node.getRequestsPiggybacked();
+        return total;
+    }
+
+    public long getClaimsStarted() {
+        long total = 0;
+        for (Node node : nodes) total += node.getClaimsStarted();
+        return total;
+    }
+
+    public long getTokensRegenerated() {
+        long total = 0;
+        for (Node node : nodes) total += node.getTokensRegenerated();
+        return total;
+    }
+
+    public long getStaleTokensDropped() {
+        long total = 0;
+        for (Node node : nodes) total += node.getStaleTokensDropped();
+        return total;
+    }
+
+    private static final class Event implements Comparable<Event> {
+        final long time;
+        final long sequence;
+        final Runnable action;
+
+        Event(long time, long sequence, Runnable action) {
+            this.time = time;
+            this.sequence = sequence;
+            this.action = action;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            int byTime = Long.compare(time, other.time);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    // Usage: Simulator [nodes] [virtual seconds] [seed]
+    // Runs the same workload once per routing mode and prints per-CS-entry costs, then
+    // the RingMetrics percentiles. With -Dtoken_ring.traceDir each run is traced to a
+    // subdirectory named after its routing.
+    // -Dtoken_ring.workload (a Workload spec) replaces the per-node polls as the source of
+    // requests, and -Dtoken_ring.holdTime (a HoldTime spec) the fixed CS duration.
+    // -Dtoken_ring.priorityMix gives the workload's arrivals classes and deadlines (see
+    // Workload.withPriorities); they are scheduled with -Dtoken_ring.priorityAgingMillis.
+    public static void main(String[] args) {
+        int nodeCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long seconds = args.length > 1 ? Long.parseLong(args[1]) : 3600;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+        String workload = System.getProperty("token_ring.workload");
+        String holdTime = System.getProperty("token_ring.holdTime");
+        String priorityMix = System.getProperty("token_ring.priorityMix");
+        if (priorityMix != null && workload == null) {
+            throw new IllegalArgumentException("token_ring.priorityMix needs a token_ring.workload");
+        }
+        
+        System.out.printf("nodes=%d virtual=%ds seed=%d %s%n", nodeCount, seconds, seed,
+                          ProtocolConfig.DEFAULT);
+        if (workload != null || holdTime != null) {
+            System.out.printf("workload=%s holdTime=%s%s%n", workload != null ? workload : "polls",
+                              holdTime != null ? holdTime : "fixed",
+                              priorityMix != null ? " priorityMix=" + priorityMix : "");
+        }
+        System.out.printf("%-10s %8s %10s %9s %11s %11s %11s %11s %9s %11s %10s%n",
+                          "routing", "wall s", "hops/s", "csEntries", "ctrl/entry", "req/entry",
+                          "wait ms", "max wait ms", "reqTokens", "piggybacked", "suppressed");
+        for (ProtocolConfig.Routing routing : ProtocolConfig.Routing.values()) {
+            ProtocolConfig config = ProtocolConfig.DEFAULT.withRouting(routing);
+            String traceDir = System.getProperty("token_ring.traceDir");
+            if (traceDir != null) {
+                Trace.start(Path.of(traceDir, routing.name()));
+            }
+            double probability = workload != null ? 0 : Node.REQUEST_PROBABILITY;
+            Simulator sim = new Simulator(nodeCount, seed, probability, config);
+            if (workload != null) {
+                Workload arrivals = Workload.parse(workload, nodeCount, seed);
+                if (priorityMix != null) {
+                    arrivals = Workload.withPriorities(arrivals, priorityMix, seed);
+                }
+                sim.attach(arrivals);
+            }
+            if (holdTime != null) {
+                sim.setHoldTime(holdTime, seed);
+            }
+            long start = System.nanoTime();
+            sim.runUntil(seconds * 1000);
+            double wallSeconds = (System.nanoTime() - start) / 1e9;
+            
+            double entries = Math.max(1, sim.getCsEntries());
+            long hops = sim.getControlHops() + sim.getRequestHops();
+            System.out.printf("%-10s %8.3f %10.0f %9d %11.1f %11.1f %11.0f %11d %9d %11d %10d%n",
+                              routing, wallSeconds, hops / wallSeconds, sim.getCsEntries(),
+                              sim.getControlHops() / entries, sim.getRequestHops() / entries,
+                              sim.getTotalWaitMillis() / entries, sim.getMaxWaitMillis(),
+                              sim.getRequestTokensCreated(),
+                              sim.getRequestsPiggybacked(), sim.getRequestTokensSuppressed());
+            if (config.getTokens() > 1) {
+                StringBuilder occupancy = new StringBuilder("  token occupancy:");
+                for (ControlToken token : sim.getTokens()) {
+                    occupancy.append(String.format(" %d=%.0f%%", token.getId(),
+                                                   100.0 * token.getBusyMillis() / sim.now()));
+                }
+                System.out.println(occupancy);
+            }
+            System.out.print(sim.getMetrics().report());
+        }
+    }
+}
@@ -0,0 +1,152 @@
+// SuzukiKasami.java
+package com.app;
+
+import java.util.Arrays;
+
+// Suzuki-Kasami broadcast mutual exclusion. A requester sends its next request
+// number to every other member, and each member keeps the highest number heard
+// from everyone (RN). The privilege carries the number of each member's last
+// request served (LN) and a queue. On leaving the CS the holder queues everyone
+// with an outstanding request, RN = LN + 1, and sends the privilege to the head.
+// Each entry costs n - 1 requests and one privilege, or nothing while the holder
+// keeps it. Arrays are indexed by ring position, so membership must stay fixed.
+final class SuzukiKasami implements MutexAlgorithm {
+    // A member's request number, broadcast
+    static final class Request extends RequestToken {
+        final long number;
+
+        Request(int origin, long number) {
+            super(origin);
+            this.number = number;
+        }
+
+        @Override
+        public String toString() {
+            return "SuzukiKasami.Request{origin=" + getOriginNodeId() + ", number=" + number + "}";
+        }
+    }
+
+    // The privilege: its token holds the queue, served is LN
+    static final class Privilege {
+        final ControlToken token;
+        final long[] served;
+
+        Privilege(ControlToken token, long[] served) {
+            this.token = token;
+            this.served = served;
+        }
+
+        @Override
+        public String toString() {
+            return "SuzukiKasami.Privilege{" + token + ", served=" + Arrays.toString(served) + "}";
+        }
+    }
+
+    private final Node node;
+    // RN, by ring position
+    private long[] requested = new long[0];
+    // LN while we hold the privilege; the first holder starts it at zeros
+    private long[] served = null;
+
+    SuzukiKasami(Node node) {
+        this.node = node;
+    }
+
+    @Override
+    public void request() {
+        if (node.heldToken() != null) {
+            // Nobody asked for it since we last used it
+            node.grant();
+            return;
+        }
+        RingSnapshot members = node.currentRing();
+        int self = members.indexOf(node);
+        long number = ++requested(members)[self];
+        for (int i = 0; i < members.size(); i++) {
+            if (i != self) {
+                node.sendRequest(members.get(i), new Request(node.getNodeId(), number));
+            }
+        }
+    }
+
+    @Override
+    public void release() {
+        RingSnapshot members = node.currentRing();
+        long[] rn = requested(members);
+        long[] ln = served(members);
+        int self = members.indexOf(node);
+        ln[self] = rn[self];
+        ControlToken token = node.heldToken();
+        // Newcomers join in ring order after us, so nobody is passed over for long
+        for (int k = 1; k < members.size(); k++) {
+            int i = (self + k) % members.size();
+            if (rn[i] == ln[i] + 1) {
+                token.addRequest(members.get(i).getNodeId());
+            }
+        }
+        if (token.hasRequests()) {
+            pass(members, token.removeRequest());
+        }
+        if (node.isRequesting()) {
+            request();
+        }
+    }
+
+    @Override
+    public boolean receive(Object message) {
+        if (message instanceof Request) {
+            Request request = (Request) message;
+            RingSnapshot members = node.currentRing();
+            int i = members.indexOfId(request.getOriginNodeId());
+            if (i < 0) {
+                return true;
+            }
+            long[] rn = requested(members);
+            rn[i] = Math.max(rn[i], request.number);
+            if (node.heldToken() != null && node.getState() != Node.NodeState.IN_CS
+                    && rn[i] == served(members)[i] + 1) {
+                // Idle holder: the queue is empty, so this one goes straight there
+                pass(members, request.getOriginNodeId());
+            }
+            return true;
+        }
+        if (message instanceof Privilege) {
+            Privilege privilege = (Privilege) message;
+            served = privilege.served;
+            node.holdPrivilege(privilege.token);
+            if (node.isRequesting()) {
+                node.grant();
+            } else {
+                release();
+            }
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void poll() {
+    }
+
+    private void pass(RingSnapshot members, int targetId) {
+        Privilege privilege = new Privilege(node.heldToken(), served(members));
+        served = null;
+        node.sendPrivilege(members.get(members.indexOfId(targetId)), privilege);
+    }
+
+    private long[] requested(RingSnapshot members) {
+        if (requested.length < members.size()) {
+            requested = Arrays.copyOf(requested, members.size());
+        }
+        return requested;
+    }
+
+    private long[] served(RingSnapshot members) {
+        if (served == null) {
+            served = new long[members.size()];
+        } else if (served.length < members.size()) {
+            served = Arrays.copyOf(served, members.size());
+        }
+        return served;
+    }
+}
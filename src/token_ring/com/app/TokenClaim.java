@@ -0,0 +1,50 @@
+// TokenClaim.java
+package com.app;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+// Sent once round the ring by a waiting node that has not seen some control tokens
+// for a whole rotation timeout. Each node it passes clears the tokens it holds or
+// has seen within the timeout; whatever is still suspected when the claim gets back
+// to its origin is lost, and the origin mints it again one generation up. Travels
+// like a request token and gathers the waiting nodes it passes, whose requests were
+// likely lost with the token.
+final class TokenClaim extends RequestToken {
+    private final long round;
+    private final BitSet suspects;
+    // Newest generation and sequence the claim has passed, per token id
+    private final int[] epochs;
+    private final long[] sequences;
+
+    TokenClaim(int originNodeId, long round, BitSet suspects, int tokenCount) {
+        super(originNodeId);
+        this.round = round;
+        this.suspects = suspects;
+        this.epochs = new int[tokenCount];
+        this.sequences = new long[tokenCount];
+        Arrays.fill(sequences, -1);
+    }
+
+    long getRound() { return round; }
+
+    // Live set, cleared as tokens are vouched for
+    BitSet getSuspects() { return suspects; }
+
+    int getTokenCount() { return epochs.length; }
+    int getEpoch(int tokenId) { return epochs[tokenId]; }
+    long getSequence(int tokenId) { return sequences[tokenId]; }
+
+    void observe(int tokenId, int epoch, long sequence) {
+        if (epoch > epochs[tokenId] || (epoch == epochs[tokenId] && sequence > sequences[tokenId])) {
+            epochs[tokenId] = epoch;
+            sequences[tokenId] = sequence;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TokenClaim{origin=" + getOriginNodeId() + ", round=" + round + ", suspects=" + suspects
+               + ", requests=" + getRequests() + "}";
+    }
+}
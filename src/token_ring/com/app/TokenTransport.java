@@ -0,0 +1,11 @@
+// TokenTransport.java
+package com.app;
+
+// How a token travels from one node to its successor. Graph animates the hop on
+// screen; Simulator delivers it after a virtual delay. onArrival runs once the
+// token has reached the destination.
+public interface TokenTransport {
+    void sendControlToken(Node from, Node to, Runnable onArrival);
+
+    void sendRequestToken(Node from, Node to, RequestToken token, Runnable onArrival);
+}
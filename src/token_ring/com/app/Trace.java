@@ -0,0 +1,169 @@
+// Trace.java
+package com.app;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Binary protocol trace. Every protocol event is one fixed-size record in a
+// memory-mapped segment file: a writer claims a slot with one atomic add and
+// stores 32 bytes at it, with no formatting, locking or copying. Segments are
+// trace-00000.bin, trace-00001.bin, ... in the directory given by
+// -Dtoken_ring.traceDir, each token_ring.traceSegmentMB long; without the property
+// recording is off and costs one field read per event. TraceReplay reads them back.
+//
+// Record layout, little-endian:
+//   0 long time ms (the node's clock: virtual in the Simulator)
+//   8 int node     12 short kind     14 short token id (-1 for none)
+//  16 int peer (target or origin node, -1 for none)
+//  20 int count (queue size, pending requests or ring index)
+//  24 long value (sequence, wait or hold ms, epoch)
+// Unwritten slots are all zeros, so kind NONE marks them; the kind is stored last.
+public final class Trace {
+    public enum Kind { NONE, JOIN, LEAVE, REQUEST, FORWARD, MERGE, PASS, ACCEPT, ENTER, EXIT, REGENERATE }
+
+    public static final int RECORD_BYTES = 32;
+    static final String SEGMENT_GLOB = "trace-*.bin";
+
+    private static volatile Writer writer;
+    private static boolean hookInstalled = false;
+
+    static {
+        String dir = System.getProperty("token_ring.traceDir");
+        if (dir != null) {
+            start(Path.of(dir));
+        }
+    }
+
+    private Trace() { }
+
+    // Starts a fresh trace in dir, replacing any segments already there
+    public static synchronized void start(Path dir) {
+        close();
+        long segmentBytes = Long.getLong("token_ring.traceSegmentMB", 16) << 20;
+        int records = (int) Math.min(Integer.MAX_VALUE / RECORD_BYTES, segmentBytes / RECORD_BYTES);
+        writer = new Writer(dir, records);
+        if (!hookInstalled) {
+            Runtime.getRuntime().addShutdownHook(new Thread(Trace::close, "trace-close"));
+            hookInstalled = true;
+        }
+    }
+
+    // Flushes the mapped segments; records after this are not kept
+    public static synchronized void close() {
+        Writer w = writer;
+        writer = null;
+        if (w != null) {
+            w.close();
+        }
+    }
+
+    public static boolean isEnabled() {
+        return writer != null;
+    }
+
+    static void record(Kind kind, long time, int node, int token, int peer, int count, long value) {
+        Writer w = writer;
+        if (w != null) {
+            w.append(kind, time, node, token, peer, count, value);
+        }
+    }
+
+    // Segment files of a trace directory in order
+    static List<Path> segments(Path dir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, SEGMENT_GLOB)) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+        return files;
+    }
+
+    private static final class Writer {
+        private final Path dir;
+        private final int recordsPerSegment;
+        private final AtomicLong next = new AtomicLong();
+        // Grown and filled under the lock; writers only read it. Segments two behind
+        // the newest are let go, since any writer still on one holds its own reference.
+        private volatile MappedByteBuffer[] mapped = new MappedByteBuffer[16];
+
+        Writer(Path dir, int recordsPerSegment) {
+            this.dir = dir;
+            this.recordsPerSegment = recordsPerSegment;
+            try {
+                Files.createDirectories(dir);
+                for (Path old : segments(dir)) {
+                    Files.delete(old);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot prepare trace directory " + dir, e);
+            }
+        }
+
+        void append(Kind kind, long time, int node, int token, int peer, int count, long value) {
+            long slot = next.getAndIncrement();
+            MappedByteBuffer segment = segment((int) (slot / recordsPerSegment));
+            // Absolute puts at an offset only this writer owns
+            int at = (int) (slot % recordsPerSegment) * RECORD_BYTES;
+            segment.putLong(at, time);
+            segment.putInt(at + 8, node);
+            segment.putShort(at + 14, (short) token);
+            segment.putInt(at + 16, peer);
+            segment.putInt(at + 20, count);
+            segment.putLong(at + 24, value);
+            segment.putShort(at + 12, (short) kind.ordinal());
+        }
+
+        private MappedByteBuffer segment(int index) {
+            MappedByteBuffer[] current = mapped;
+            if (index < current.length && current[index] != null) {
+                return current[index];
+            }
+            synchronized (this) {
+                current = mapped;
+                if (index >= current.length) {
+                    current = Arrays.copyOf(current, Math.max(index + 1, current.length * 2));
+                }
+                if (current[index] == null) {
+                    current[index] = map(index);
+                    if (index >= 2) {
+                        current[index - 2] = null;
+                    }
+                    mapped = current;
+                }
+                return current[index];
+            }
+        }
+
+        private MappedByteBuffer map(int index) {
+            Path file = dir.resolve(String.format("trace-%05d.bin", index));
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                                                        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                                                      (long) recordsPerSegment * RECORD_BYTES);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                return buffer;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot map trace segment " + file, e);
+            }
+        }
+
+        synchronized void close() {
+            for (MappedByteBuffer buffer : mapped) {
+                if (buffer != null) {
+                    buffer.force();
+                }
+            }
+        }
+    }
+}
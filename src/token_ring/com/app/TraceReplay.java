@@ -0,0 +1,282 @@
+// TraceReplay.java
+package com.app;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.app.Trace.Kind;
+
+// Reads a binary trace (see Trace) back at disk speed: one sequential pass over the
+// mapped segments, fields read at fixed offsets. Prints statistics computed offline,
+// or prints the ring as it was at some point of the run; replay() publishes that ring
+// as the global one, which is how token_ring.ui's ReplayViewer shows it with a slider
+// to move through the run. Times are ms from the first record.
+// Usage: TraceReplay <dir> [stats | at <ms>]
+public class TraceReplay {
+    private static final Kind[] KINDS = Kind.values();
+
+    // Called for every record in trace order; returning false ends the scan
+    public interface Visitor {
+        boolean visit(Kind kind, long time, int node, int token, int peer, int count, long value);
+    }
+
+    // Returns the number of records visited
+    public static long scan(Path dir, Visitor visitor) throws IOException {
+        long records = 0;
+        for (Path file : Trace.segments(dir)) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                segment.order(ByteOrder.LITTLE_ENDIAN);
+                int end = segment.limit() - Trace.RECORD_BYTES;
+                for (int at = 0; at <= end; at += Trace.RECORD_BYTES) {
+                    int kind = segment.getShort(at + 12);
+                    if (kind <= 0 || kind >= KINDS.length) {
+                        continue;  // never written
+                    }
+                    records++;
+                    if (!visitor.visit(KINDS[kind], segment.getLong(at), segment.getInt(at + 8),
+                                       segment.getShort(at + 14), segment.getInt(at + 16),
+                                       segment.getInt(at + 20), segment.getLong(at + 24))) {
+                        return records;
+                    }
+                }
+            }
+        }
+        return records;
+    }
+
+    // When the trace starts, so callers can count from there
+    public static long startTime(Path dir) throws IOException {
+        long[] first = { 0 };
+        scan(dir, (kind, time, node, token, peer, count, value) -> {
+            first[0] = time;
+            return false;
+        });
+        return first[0];
+    }
+
+    // Totals over the whole run
+    private static final class Statistics implements Visitor {
+        final long[] byKind = new long[KINDS.length];
+        long first = Long.MAX_VALUE, last = Long.MIN_VALUE;
+        long totalWait = 0, maxWait = 0;
+        long[] grants = new long[1], busy = new long[1];
+
+        @Override
+        public boolean visit(Kind kind, long time, int node, int token, int peer, int count, long value) {
+            byKind[kind.ordinal()]++;
+            first = Math.min(first, time);
+            last = Math.max(last, time);
+            if (kind == Kind.ENTER) {
+                totalWait += value;
+                maxWait = Math.max(maxWait, value);
+            } else if (kind == Kind.EXIT && token >= 0) {
+                if (token >= grants.length) {
+                    grants = Arrays.copyOf(grants, token + 1);
+                    busy = Arrays.copyOf(busy, token + 1);
+                }
+                grants[token]++;
+                busy[token] += value;
+            }
+            return true;
+        }
+
+        void print() {
+            long span = Math.max(1, last - first);
+            long entries = byKind[Kind.ENTER.ordinal()];
+            System.out.printf("span %d ms%n", span);
+            for (Kind kind : KINDS) {
+                if (kind != Kind.NONE) {
+                    System.out.printf("  %-10s %10d%n", kind, byKind[kind.ordinal()]);
+                }
+            }
+            System.out.printf("CS entries/s %.3f, mean wait %.0f ms, max wait %d ms%n",
+                              entries * 1000.0 / span, totalWait / (double) Math.max(1, entries), maxWait);
+            System.out.printf("control passes per entry %.1f, request forwards per entry %.1f%n",
+                              byKind[Kind.PASS.ordinal()] / (double) Math.max(1, entries),
+                              byKind[Kind.FORWARD.ordinal()] / (double) Math.max(1, entries));
+            for (int id = 0; id < grants.length; id++) {
+                System.out.printf("token %d: %d grants, %.0f%% busy%n", id, grants[id], 100.0 * busy[id] / span);
+            }
+        }
+    }
+
+    // Membership, node states and token holders as of a point in the run
+    private static final class RingState implements Visitor {
+        private static final Node.NodeState[] STATES = Node.NodeState.values();
+
+        final long until;
+        final List<Integer> members = new ArrayList<>();
+        byte[] states = new byte[16];
+        int[] pending = new int[16];
+        int[] held = new int[16];
+        long[] grants = new long[1], busy = new long[1];
+
+        RingState(long until) {
+            this.until = until;
+        }
+
+        @Override
+        public boolean visit(Kind kind, long time, int node, int token, int peer, int count, long value) {
+            if (time > until) {
+                return false;
+            }
+            if (node >= states.length) {
+                int n = Math.max(node + 1, states.length * 2);
+                states = Arrays.copyOf(states, n);
+                pending = Arrays.copyOf(pending, n);
+                held = Arrays.copyOf(held, n);
+            }
+            switch (kind) {
+                case JOIN:
+                    members.add(Math.min(count, members.size()), node);
+                    set(node, Node.NodeState.IDLE);
+                    pending[node] = 0;
+                    held[node] = -1;
+                    break;
+                case LEAVE:
+                    members.remove(Integer.valueOf(node));
+                    break;
+                case REQUEST:
+                    pending[node] = count;
+                    if (state(node) == Node.NodeState.IDLE) {
+                        set(node, Node.NodeState.REQUESTING);
+                    }
+                    break;
+                case ACCEPT:
+                    held[node] = token;
+                    set(node, Node.NodeState.HAS_TOKEN);
+                    break;
+                case ENTER:
+                    held[node] = token;
+                    pending[node] = count;
+                    set(node, Node.NodeState.IN_CS);
+                    break;
+                case EXIT:
+                    pending[node] = count;
+                    set(node, Node.NodeState.HAS_TOKEN);
+                    if (token >= grants.length) {
+                        grants = Arrays.copyOf(grants, token + 1);
+                        busy = Arrays.copyOf(busy, token + 1);
+                    }
+                    grants[token]++;
+                    busy[token] += value;
+                    break;
+                case PASS:
+                    if (held[node] == token) {
+                        held[node] = -1;
+                        set(node, pending[node] > 0 ? Node.NodeState.REQUESTING : Node.NodeState.IDLE);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            return true;
+        }
+
+        Node.NodeState state(int node) { return STATES[states[node]]; }
+
+        private void set(int node, Node.NodeState state) {
+            states[node] = (byte) state.ordinal();
+        }
+
+        void print(long start) {
+            int[] counts = new int[STATES.length];
+            StringBuilder holders = new StringBuilder();
+            for (int node : members) {
+                counts[states[node]]++;
+                if (held[node] >= 0) {
+                    holders.append(" Node-").append(node).append("=T").append(held[node]);
+                }
+            }
+            System.out.printf("t=%d ms: %d nodes, holders:%s%n", until - start, members.size(), holders);
+            for (Node.NodeState state : STATES) {
+                System.out.printf("  %-10s %d%n", state, counts[state.ordinal()]);
+            }
+            if (members.size() <= 100) {
+                for (int node : members) {
+                    System.out.printf("  Node-%d %s%s%n", node, state(node),
+                                      held[node] >= 0 ? " token " + held[node] : "");
+                }
+            }
+        }
+
+        // Shows this state as the global ring, reusing the Node objects in cache
+        void publish(Map<Integer, Node> cache) {
+            ControlToken[] tokens = new ControlToken[grants.length];
+            for (int id = 0; id < tokens.length; id++) {
+                tokens[id] = new ControlToken(id);
+                if (grants[id] > 0) {
+                    // Spread over the grants; only the totals are shown
+                    for (long g = 1; g < grants[id]; g++) {
+                        tokens[id].recordGrant(0);
+                    }
+                    tokens[id].recordGrant(busy[id]);
+                }
+            }
+            Node[] ring = new Node[members.size()];
+            for (int i = 0; i < ring.length; i++) {
+                int id = members.get(i);
+                // Replayed nodes never run, so they need no transport
+                Node node = cache.computeIfAbsent(id, n -> new Node(n, null, ProtocolConfig.DEFAULT, false));
+                int token = held[id];
+                node.restore(state(id), token >= 0 && token < tokens.length ? tokens[token] : null);
+                ring[i] = node;
+            }
+            Node.showReplay(ring, Arrays.asList(tokens));
+        }
+    }
+
+    // When the trace ends
+    public static long endTime(Path dir) throws IOException {
+        Statistics stats = new Statistics();
+        scan(dir, stats);
+        return Math.max(startTime(dir), stats.last);
+    }
+
+    // Publishes the ring as of time until as the global ring, reusing the Node
+    // objects in cache from one call to the next
+    public static void replay(Path dir, long until, Map<Integer, Node> cache) throws IOException {
+        RingState state = new RingState(until);
+        scan(dir, state);
+        state.publish(cache);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: TraceReplay <dir> [stats | at <ms>]");
+            System.exit(2);
+        }
+        Path dir = Path.of(args[0]);
+        String mode = args.length > 1 ? args[1] : "stats";
+        long start = startTime(dir);
+        switch (mode) {
+            case "stats": {
+                Statistics stats = new Statistics();
+                long began = System.nanoTime();
+                long records = scan(dir, stats);
+                double seconds = (System.nanoTime() - began) / 1e9;
+                System.out.printf("%d records in %.3f s (%.0f MB/s)%n", records, seconds,
+                                  records * Trace.RECORD_BYTES / 1e6 / seconds);
+                stats.print();
+                break;
+            }
+            case "at": {
+                RingState state = new RingState(start + Long.parseLong(args[2]));
+                scan(dir, state);
+                state.print(start);
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+    }
+}
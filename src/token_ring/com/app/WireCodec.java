@@ -0,0 +1,269 @@
+// WireCodec.java
+package com.app;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
+// Binary encoding of tokens for NioTransport. No Java serialization: each frame is
+// written straight into the connection's direct buffer, little-endian.
+//
+// Frame:   int length (of what follows)  byte type  long sent (System.nanoTime)
+//          varint target node  payload
+// CONTROL: varint id, epoch; varlong sequence; varint hops since grant;
+//          varlong grants, busy ms; request set (ordered)
+// REQUEST: varint origin; varlong created ms; varint hops; request set
+// CLAIM:   REQUEST fields, then varlong round; varint token count; per token
+//          varint epoch, varlong sequence + 1; varint suspect words, longs
+//
+// A request set is a mode byte then either a varint count and zigzag varint
+// deltas between successive ids, or, when smaller and order does not matter, the
+// lowest id and a bitmap of the rest. Queues on a control token keep their order.
+// A priority schedule is a list in the order it is served, each id's due time
+// after it; ids due together are thus read back in their arrival order.
+final class WireCodec {
+    static final byte CONTROL = 1, REQUEST = 2, CLAIM = 3;
+    static final int HEADER_BYTES = 4 + 1 + 8;
+    private static final byte LIST = 0, BITMAP = 1, SCHEDULE = 2;
+
+    private WireCodec() { }
+
+    // Appends one frame; false, with out untouched, if it does not fit
+    static boolean encode(Object message, int target, long sentNanos, ByteBuffer out) {
+        int start = out.position();
+        try {
+            out.position(start + 4);
+            if (message instanceof ControlToken) {
+                out.put(CONTROL);
+            } else if (message instanceof TokenClaim) {
+                out.put(CLAIM);
+            } else if (message instanceof RequestToken) {
+                out.put(REQUEST);
+            } else {
+                throw new IllegalArgumentException("Cannot send " + message + " to another process");
+            }
+            out.putLong(sentNanos);
+            putVarint(out, target);
+            if (message instanceof ControlToken) {
+                putControl(out, (ControlToken) message);
+            } else {
+                putRequest(out, (RequestToken) message);
+            }
+            out.putInt(start, out.position() - start - 4);
+            return true;
+        } catch (BufferOverflowException e) {
+            out.position(start);
+            return false;
+        }
+    }
+
+    // Reads the body of a frame whose header has been consumed
+    static Object decode(byte type, ByteBuffer in) {
+        switch (type) {
+            case CONTROL: return getControl(in);
+            case REQUEST: return getRequest(in, false);
+            case CLAIM: return getRequest(in, true);
+            default: throw new IllegalArgumentException("Unknown frame type " + type);
+        }
+    }
+
+    private static void putControl(ByteBuffer out, ControlToken token) {
+        putVarint(out, token.getId());
+        putVarint(out, token.getEpoch());
+        putVarlong(out, token.getSequence());
+        putVarint(out, token.getHopsSinceGrant());
+        putVarlong(out, token.getGrants());
+        putVarlong(out, token.getBusyMillis());
+        putRequests(out, token.getQueue(), true);
+    }
+
+    private static ControlToken getControl(ByteBuffer in) {
+        ControlToken token = new ControlToken(getVarint(in), getVarint(in));
+        token.restore(getVarlong(in), getVarint(in), getVarlong(in), getVarlong(in));
+        token.addAllRequests(getRequests(in));
+        return token;
+    }
+
+    private static void putRequest(ByteBuffer out, RequestToken token) {
+        putVarint(out, token.getOriginNodeId());
+        putVarlong(out, token.getCreatedAt());
+        putVarint(out, token.getHops());
+        putRequests(out, token.getRequests(), false);
+        if (token instanceof TokenClaim) {
+            TokenClaim claim = (TokenClaim) token;
+            putVarlong(out, claim.getRound());
+            putVarint(out, claim.getTokenCount());
+            for (int id = 0; id < claim.getTokenCount(); id++) {
+                putVarint(out, claim.getEpoch(id));
+                putVarlong(out, claim.getSequence(id) + 1);
+            }
+            long[] words = claim.getSuspects().toLongArray();
+            putVarint(out, words.length);
+            for (long word : words) {
+                out.putLong(word);
+            }
+        }
+    }
+
+    private static RequestToken getRequest(ByteBuffer in, boolean claim) {
+        int origin = getVarint(in);
+        long createdAt = getVarlong(in);
+        int hops = getVarint(in);
+        RequestQueue requests = getRequests(in);
+        RequestToken token;
+        if (claim) {
+            long round = getVarlong(in);
+            int tokenCount = getVarint(in);
+            int[] epochs = new int[tokenCount];
+            long[] sequences = new long[tokenCount];
+            for (int id = 0; id < tokenCount; id++) {
+                epochs[id] = getVarint(in);
+                sequences[id] = getVarlong(in) - 1;
+            }
+            long[] words = new long[getVarint(in)];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = in.getLong();
+            }
+            TokenClaim tokenClaim = new TokenClaim(origin, round, BitSet.valueOf(words), tokenCount);
+            for (int id = 0; id < tokenCount; id++) {
+                tokenClaim.observe(id, epochs[id], sequences[id]);
+            }
+            token = tokenClaim;
+        } else {
+            token = new RequestToken(origin);
+        }
+        token.stamp(createdAt);
+        token.setHops(hops);
+        token.addAllRequests(requests);
+        return token;
+    }
+
+    private static void putRequests(ByteBuffer out, RequestQueue requests, boolean ordered) {
+        int n = requests.size();
+        if (requests.isScheduled()) {
+            out.put(SCHEDULE);
+            putVarint(out, n);
+            int previous = 0;
+            for (int id : requests.toArray()) {
+                putVarint(out, zigzag(id - previous));
+                putVarlong(out, requests.getDue(id));
+                previous = id;
+            }
+            return;
+        }
+        int min = Integer.MAX_VALUE, max = -1;
+        int listBytes = varintSize(n);
+        int previous = 0;
+        for (int i = 0; i < n; i++) {
+            int id = requests.get(i);
+            min = Math.min(min, id);
+            max = Math.max(max, id);
+            listBytes += varintSize(zigzag(id - previous));
+            previous = id;
+        }
+        int words = n == 0 ? 0 : (max - min) / 64 + 1;
+        int bitmapBytes = varintSize(min) + varintSize(words) + 8 * words;
+        if (!ordered && n > 0 && bitmapBytes < listBytes) {
+            out.put(BITMAP);
+            putVarint(out, min);
+            putVarint(out, words);
+            long[] bits = new long[words];
+            for (int i = 0; i < n; i++) {
+                int offset = requests.get(i) - min;
+                bits[offset >>> 6] |= 1L << offset;
+            }
+            for (long word : bits) {
+                out.putLong(word);
+            }
+        } else {
+            out.put(LIST);
+            putVarint(out, n);
+            previous = 0;
+            for (int i = 0; i < n; i++) {
+                int id = requests.get(i);
+                putVarint(out, zigzag(id - previous));
+                previous = id;
+            }
+        }
+    }
+
+    private static RequestQueue getRequests(ByteBuffer in) {
+        byte mode = in.get();
+        RequestQueue requests;
+        if (mode == BITMAP) {
+            int min = getVarint(in);
+            int words = getVarint(in);
+            requests = new RequestQueue(words * 8);
+            for (int w = 0; w < words; w++) {
+                long word = in.getLong();
+                while (word != 0) {
+                    requests.add(min + w * 64 + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        } else {
+            int n = getVarint(in);
+            requests = new RequestQueue(Math.max(4, n));
+            int previous = 0;
+            for (int i = 0; i < n; i++) {
+                previous += unzigzag(getVarint(in));
+                if (mode == SCHEDULE) {
+                    requests.add(previous, getVarlong(in));
+                } else {
+                    requests.add(previous);
+                }
+            }
+        }
+        return requests;
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int varintSize(int value) {
+        return value == 0 ? 1 : (31 - Integer.numberOfLeadingZeros(value)) / 7 + 1;
+    }
+
+    static void putVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static void putVarlong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static int getVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    static long getVarlong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+// BenchWorkload.java
+package com.app.bench;
+
+import com.app.workload.Workload;
+
+// The arrivals the virtual-time benches share: Poisson at the given rate unless
+// -Dbench.workload names another Workload spec
+final class BenchWorkload {
+    private BenchWorkload() { }
+
+    static Workload of(int size, double rate, long seed) {
+        return Workload.parse(System.getProperty("bench.workload", "poisson:" + rate), size, seed);
+    }
+}
@@ -0,0 +1,55 @@
+// KTokenBench.java
+package com.app.bench;
+
+import com.app.ControlToken;
+import com.app.ProtocolConfig;
+import com.app.Simulator;
+
+// CS throughput as the number of control tokens grows, in virtual time, for each
+// routing mode. Requests arrive as one Poisson stream at random nodes, fast enough
+// that a single token cannot keep up, so entries per second show how far k tokens
+// scale; occupancy is the mean share of the run a token spent with a node in the CS.
+// -Dbench.workload replaces the Poisson stream with any Workload spec.
+// Usage: KTokenBench [token counts, e.g. 1,2,4] [nodes] [virtual seconds] [arrivals per second]
+public class KTokenBench {
+    private static final long SEED = 42;
+
+    public static void main(String[] args) {
+        String counts = args.length > 0 ? args[0] : "1,2,4,8,16";
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        long seconds = args.length > 2 ? Long.parseLong(args[2]) : 2000;
+        double rate = args.length > 3 ? Double.parseDouble(args[3]) : 2.0;
+
+        System.out.printf("nodes=%d virtual=%ds arrivals/s=%.3f %s%n", size, seconds, rate,
+                          ProtocolConfig.DEFAULT);
+        System.out.printf("%-6s %-10s %8s %8s %10s %12s %12s %10s %8s%n", "tokens", "routing",
+                          "arrivals", "entries", "entries/s", "mean wait ms", "max wait ms",
+                          "occupancy", "unserved");
+        for (ProtocolConfig.Routing routing : ProtocolConfig.Routing.values()) {
+            for (String count : counts.split(",")) {
+                ProtocolConfig config = ProtocolConfig.DEFAULT.withRouting(routing)
+                        .withGroupSize(0).withTokens(Integer.parseInt(count.trim()));
+                run(size, config, seconds, rate);
+            }
+        }
+    }
+
+    private static void run(int size, ProtocolConfig config, long seconds, double rate) {
+        Simulator sim = new Simulator(size, SEED, 0, config);
+        sim.attach(BenchWorkload.of(size, rate, SEED));
+        sim.runUntil(seconds * 1000);
+        long arrivals = sim.getArrivals();
+
+        long busy = 0;
+        for (ControlToken token : sim.getTokens()) {
+            busy += token.getBusyMillis();
+        }
+        long entries = sim.getCsEntries();
+        System.out.printf("%-6d %-10s %8d %8d %10.3f %12.0f %12d %9.1f%% %8d%n", config.getTokens(),
+                          config.getRouting(), arrivals, entries, entries / (double) seconds,
+                          sim.getTotalWaitMillis() / (double) Math.max(1, entries),
+                          sim.getMaxWaitMillis(),
+                          100.0 * busy / sim.getTokens().size() / (seconds * 1000),
+                          sim.getPendingRequests());
+    }
+}
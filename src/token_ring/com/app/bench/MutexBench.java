@@ -0,0 +1,59 @@
+// MutexBench.java
+package com.app.bench;
+
+import com.app.LatencyHistogram;
+import com.app.ProtocolConfig;
+import com.app.RingMetrics;
+import com.app.Simulator;
+
+// The mutual-exclusion algorithms side by side, in virtual time: the token ring
+// under each routing, Suzuki-Kasami and Raymond, each run against the same seeded
+// workload per ring size. Messages per entry count every message sent, requests
+// and privilege alike; sync delay is the time from one CS exit to the next entry
+// while a request waits; throughput is CS entries per virtual second.
+// -Dbench.workload replaces the Poisson stream with any Workload spec.
+// Usage: MutexBench [sizes, e.g. 10,100] [virtual seconds] [arrivals per second]
+public class MutexBench {
+    private static final long SEED = 42;
+
+    public static void main(String[] args) {
+        String sizes = args.length > 0 ? args[0] : "10,100,1000";
+        long seconds = args.length > 1 ? Long.parseLong(args[1]) : 3600;
+        double rate = args.length > 2 ? Double.parseDouble(args[2]) : 0.3;
+
+        System.out.printf("virtual=%ds arrivals/s=%.3f %s%n", seconds, rate, ProtocolConfig.DEFAULT);
+        System.out.printf("%-16s %6s %8s %10s %10s %9s %9s %10s %10s %12s %12s %8s%n",
+                          "algorithm", "nodes", "entries", "entries/s", "msgs/entry", "ctrl/ent",
+                          "req/ent", "sync ms", "sync p99", "mean wait ms", "wait p99 ms",
+                          "unserved");
+        for (String size : sizes.split(",")) {
+            int nodes = Integer.parseInt(size.trim());
+            ProtocolConfig ring = ProtocolConfig.DEFAULT.withAlgorithm(ProtocolConfig.Algorithm.RING)
+                    .withGroupSize(0).withTokens(1);
+            for (ProtocolConfig.Routing routing : ProtocolConfig.Routing.values()) {
+                run("RING/" + routing, nodes, ring.withRouting(routing), seconds, rate);
+            }
+            run("SUZUKI_KASAMI", nodes, ring.withAlgorithm(ProtocolConfig.Algorithm.SUZUKI_KASAMI),
+                seconds, rate);
+            run("RAYMOND", nodes, ring.withAlgorithm(ProtocolConfig.Algorithm.RAYMOND), seconds, rate);
+        }
+    }
+
+    private static void run(String name, int nodes, ProtocolConfig config, long seconds, double rate) {
+        Simulator sim = new Simulator(nodes, SEED, 0, config);
+        sim.attach(BenchWorkload.of(nodes, rate, SEED));
+        sim.runUntil(seconds * 1000);
+
+        RingMetrics metrics = sim.getMetrics();
+        LatencyHistogram sync = metrics.getSyncDelays();
+        LatencyHistogram waits = metrics.getWaits();
+        long entries = sim.getCsEntries();
+        double perEntry = Math.max(1, entries);
+        System.out.printf("%-16s %6d %8d %10.3f %10.2f %9.2f %9.2f %10.0f %10d %12.0f %12d %8d%n",
+                          name, nodes, entries, entries / (double) seconds,
+                          metrics.getMessagesPerEntry(), metrics.getControlMessages() / perEntry,
+                          metrics.getRequestMessages() / perEntry, sync.getMean(),
+                          sync.percentile(99), waits.getMean(), waits.percentile(99),
+                          sim.getPendingRequests());
+    }
+}
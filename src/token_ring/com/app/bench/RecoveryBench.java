@@ -0,0 +1,80 @@
+// RecoveryBench.java
+package com.app.bench;
+
+import com.app.ProtocolConfig;
+import com.app.Simulator;
+import com.app.workload.Workload;
+
+// How long a flat ring stays without its token after the token is lost in
+// transit, in virtual time. Requests arrive as one Poisson stream at random nodes;
+// halfway through the warm-up the next control token sent is dropped. Reports when
+// the token was regenerated and when a node next entered the CS after that, both
+// counted from the loss, next to the rotation timeout the nodes derive for that
+// ring size.
+// Usage: RecoveryBench [sizes, e.g. 10,100] [token counts, e.g. 1,4] [arrivals per second]
+public class RecoveryBench {
+    private static final long SEED = 42;
+    private static final long WARMUP_MILLIS = 600_000;
+    private static final long STEP_MILLIS = 100;
+
+    public static void main(String[] args) {
+        String sizes = args.length > 0 ? args[0] : "10,100,1000";
+        String counts = args.length > 1 ? args[1] : "1,4";
+        double rate = args.length > 2 ? Double.parseDouble(args[2]) : 0.2;
+
+        System.out.printf("arrivals/s=%.3f %s%n", rate, ProtocolConfig.DEFAULT);
+        System.out.printf("%-6s %-6s %-10s %10s %13s %13s %7s %12s %6s %8s%n", "nodes", "tokens",
+                          "routing", "timeout ms", "regen ms", "next CS ms", "claims", "regenerated",
+                          "stale", "unserved");
+        for (String size : sizes.split(",")) {
+            for (String count : counts.split(",")) {
+                int nodes = Integer.parseInt(size.trim());
+                int tokens = Integer.parseInt(count.trim());
+                if (tokens > nodes) continue;
+                for (ProtocolConfig.Routing routing : ProtocolConfig.Routing.values()) {
+                    run(nodes, ProtocolConfig.DEFAULT.withRouting(routing).withGroupSize(0)
+                            .withTokens(tokens), rate);
+                }
+            }
+        }
+    }
+
+    private static void run(int size, ProtocolConfig config, double rate) {
+        Simulator sim = new Simulator(size, SEED, 0, config);
+        sim.attach(Workload.poisson(size, rate, SEED));
+        // Same as Node derives it: twice a rotation of hops plus one full visit
+        long timeout = config.getTokenTimeoutMillis() > 0 ? config.getTokenTimeoutMillis()
+            : 2 * ((size + 1) * Simulator.HOP_MILLIS
+                   + config.getCsMillis() * config.getMaxGrantsPerVisit());
+        long end = WARMUP_MILLIS + 10 * timeout;
+        boolean dropped = false;
+        long lostAt = -1, regeneratedAt = -1, enteredAt = -1;
+        long entriesAtRegeneration = 0;
+        for (long t = 0; t < end; t += STEP_MILLIS) {
+            sim.runUntil(t);
+            if (!dropped && t >= WARMUP_MILLIS / 2) {
+                sim.loseControlToken();
+                dropped = true;
+            }
+            if (lostAt < 0 && sim.getTokensLost() > 0) {
+                lostAt = sim.now();
+            }
+            if (lostAt >= 0 && regeneratedAt < 0 && sim.getTokensRegenerated() > 0) {
+                regeneratedAt = sim.now();
+                entriesAtRegeneration = sim.getCsEntries();
+            }
+            if (regeneratedAt >= 0 && enteredAt < 0 && sim.getCsEntries() > entriesAtRegeneration) {
+                enteredAt = sim.now();
+            }
+        }
+
+        System.out.printf("%-6d %-6d %-10s %10d %13s %13s %7d %12d %6d %8d%n", size, config.getTokens(),
+                          config.getRouting(), timeout, since(lostAt, regeneratedAt),
+                          since(lostAt, enteredAt), sim.getClaimsStarted(), sim.getTokensRegenerated(),
+                          sim.getStaleTokensDropped(), sim.getPendingRequests());
+    }
+
+    private static String since(long from, long to) {
+        return from >= 0 && to >= 0 ? String.valueOf(to - from) : "-";
+    }
+}
@@ -0,0 +1,195 @@
+// SweepRunner.java
+package com.app.bench;
+
+import com.app.LatencyHistogram;
+import com.app.ProtocolConfig;
+import com.app.Simulator;
+import com.app.workload.Workload;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Headless parameter sweep: every combination of ring size, request probability,
+// CS duration, routing and token count, each run under several seeds, as
+// independent Simulator runs spread over a fork-join pool. Runs share no state, so
+// the sweep scales with cores. Each parameter point becomes one CSV row over all its
+// seeds; the summary on stderr gives runs per wall second, to compare against a
+// run with sweep.threads=1.
+// Configured with -Dsweep.* properties (defaults in brackets):
+//   sizes [100,1000]  probabilities [0.01,0.1]  csMillis [500,2000]
+//   routings [hop,direct]  tokens [1]  seeds [3]  seconds [3600]
+//   threads [all cores]  out [stdout]
+//   workloads [none]  Workload specs separated by ';', replacing the per-node polls
+//                     and so the probabilities
+//   holdTimes [none]  HoldTime specs separated by ';', replacing the fixed csMillis
+//                     hold; csMillis still sets the loss timeout and grant budget
+// Run n of a point uses seed n for the ring, its workload and its hold times, so
+// every point is measured against the same load.
+public class SweepRunner {
+    private static final class Point {
+        final int nodes;
+        final double probability;
+        final String workload;
+        final long csMillis;
+        final String holdTime;
+        final ProtocolConfig.Routing routing;
+        final int tokens;
+
+        Point(int nodes, double probability, String workload, long csMillis, String holdTime,
+              ProtocolConfig.Routing routing, int tokens) {
+            this.nodes = nodes;
+            this.probability = probability;
+            this.workload = workload;
+            this.csMillis = csMillis;
+            this.holdTime = holdTime;
+            this.routing = routing;
+            this.tokens = tokens;
+        }
+    }
+
+    private static final class Run {
+        long entries, controlHops, requestHops, unserved;
+        double fairness;
+        LatencyHistogram waits;
+    }
+
+    public static void main(String[] args) throws FileNotFoundException {
+        String[] sizes = list("sweep.sizes", "100,1000");
+        String[] probabilities = list("sweep.probabilities", "0.01,0.1");
+        String[] durations = list("sweep.csMillis", "500,2000");
+        String[] workloads = System.getProperty("sweep.workloads", "").split(";");
+        String[] holdTimes = System.getProperty("sweep.holdTimes", "").split(";");
+        if (!workloads[0].isEmpty()) {
+            probabilities = new String[] { "0" };
+        }
+        String[] routings = list("sweep.routings", "hop,direct");
+        String[] tokenCounts = list("sweep.tokens", "1");
+        int seeds = Integer.getInteger("sweep.seeds", 3);
+        long seconds = Long.getLong("sweep.seconds", 3600);
+        int threads = Integer.getInteger("sweep.threads", Runtime.getRuntime().availableProcessors());
+        String out = System.getProperty("sweep.out");
+
+        List<Point> points = new ArrayList<>();
+        for (String size : sizes) {
+            for (String probability : probabilities) {
+                for (String workload : workloads) {
+                    for (String duration : durations) {
+                        for (String holdTime : holdTimes) {
+                            for (String routing : routings) {
+                                for (String tokens : tokenCounts) {
+                                    points.add(new Point(Integer.parseInt(size),
+                                                         Double.parseDouble(probability),
+                                                         workload.trim(), Long.parseLong(duration),
+                                                         holdTime.trim(), routing(routing),
+                                                         Integer.parseInt(tokens)));
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        List<List<ForkJoinTask<Run>>> pending = new ArrayList<>();
+        for (Point point : points) {
+            List<ForkJoinTask<Run>> runs = new ArrayList<>();
+            for (int seed = 0; seed < seeds; seed++) {
+                final long s = seed;
+                runs.add(pool.submit(() -> run(point, s, seconds)));
+            }
+            pending.add(runs);
+        }
+
+        PrintStream csv = out != null ? new PrintStream(out) : System.out;
+        csv.println("nodes,request_probability,workload,cs_ms,hold_time,routing,tokens,seeds,"
+                    + "virtual_s,entries,throughput_per_s,fairness,mean_wait_ms,p50_ms,p90_ms,p99_ms,p999_ms,max_wait_ms,"
+                    + "unserved,control_hops_per_entry,request_hops_per_entry");
+        for (int i = 0; i < points.size(); i++) {
+            Point point = points.get(i);
+            LatencyHistogram waits = new LatencyHistogram();
+            long entries = 0, controlHops = 0, requestHops = 0, unserved = 0;
+            double fairness = 0;
+            for (ForkJoinTask<Run> task : pending.get(i)) {
+                Run run = task.join();
+                waits.add(run.waits);
+                entries += run.entries;
+                controlHops += run.controlHops;
+                requestHops += run.requestHops;
+                unserved += run.unserved;
+                fairness += run.fairness / seeds;
+            }
+            double perEntry = Math.max(1, entries);
+            csv.println(String.format(Locale.ROOT,
+                                      "%d,%s,%s,%d,%s,%s,%d,%d,%d,%d,%.4f,%.4f,%.0f,%d,%d,%d,%d,%d,%.1f,"
+                                      + "%.2f,%.2f",
+                                      point.nodes, point.probability, column(point.workload, "polls"),
+                                      point.csMillis, column(point.holdTime, "fixed"), point.routing,
+                                      point.tokens, seeds, seconds, entries,
+                                      entries / (double) (seeds * seconds), fairness, waits.getMean(),
+                                      waits.percentile(50), waits.percentile(90), waits.percentile(99),
+                                      waits.percentile(99.9), waits.getMax(), unserved / (double) seeds,
+                                      controlHops / perEntry, requestHops / perEntry));
+        }
+        csv.flush();
+        if (csv != System.out) {
+            csv.close();
+        }
+        pool.shutdown();
+
+        double wall = (System.nanoTime() - start) / 1e9;
+        int runs = points.size() * seeds;
+        System.err.printf("%d runs on %d threads: %.2f s wall, %.2f runs/s%n",
+                          runs, threads, wall, runs / wall);
+    }
+
+    private static Run run(Point point, long seed, long seconds) {
+        ProtocolConfig config = ProtocolConfig.DEFAULT.withRouting(point.routing)
+                .withCsMillis(point.csMillis).withTokens(point.tokens);
+        Simulator sim = new Simulator(point.nodes, seed, point.probability, config);
+        if (!point.workload.isEmpty()) {
+            sim.attach(Workload.parse(point.workload, point.nodes, seed));
+        }
+        if (!point.holdTime.isEmpty()) {
+            sim.setHoldTime(point.holdTime, seed);
+        }
+        sim.runUntil(seconds * 1000);
+        Run run = new Run();
+        run.entries = sim.getCsEntries();
+        run.controlHops = sim.getControlHops();
+        run.requestHops = sim.getRequestHops();
+        run.unserved = sim.getPendingRequests();
+        run.fairness = sim.getFairness();
+        run.waits = sim.getWaitHistogram();
+        return run;
+    }
+
+    // Specs can hold commas (trace paths); quote them then
+    private static String column(String spec, String none) {
+        if (spec.isEmpty()) {
+            return none;
+        }
+        if (spec.contains(",") || spec.contains("\"")) {
+            return "\"" + spec.replace("\"", "\"\"") + "\"";
+        }
+        return spec;
+    }
+
+    private static String[] list(String property, String defaults) {
+        return System.getProperty(property, defaults).split(",");
+    }
+
+    private static ProtocolConfig.Routing routing(String name) {
+        switch (name.trim()) {
+            case "hop": return ProtocolConfig.Routing.HOP_BY_HOP;
+            case "direct": return ProtocolConfig.Routing.DIRECT;
+            default: throw new IllegalArgumentException("Unknown routing: " + name);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+// TopologyBench.java
+package com.app.bench;
+
+import com.app.ProtocolConfig;
+import com.app.Simulator;
+
+// CS wait on one flat ring vs a ring of rings, in virtual time, for each routing
+// mode. Requests arrive as one Poisson stream at random nodes, so the offered load
+// is the same whatever the ring size, and nodes do not poll; an arrival at a node
+// that is already waiting is dropped. Sub-rings hold about sqrt(nodes) members
+// unless bench.groupSize says otherwise, and bench.workload can replace the Poisson
+// stream with any Workload spec.
+// Usage: TopologyBench [sizes, e.g. 1000,100000] [virtual seconds] [arrivals per second]
+public class TopologyBench {
+    private static final long SEED = 42;
+
+    public static void main(String[] args) {
+        String sizes = args.length > 0 ? args[0] : "1000,10000,100000";
+        long seconds = args.length > 1 ? Long.parseLong(args[1]) : 20000;
+        double rate = args.length > 2 ? Double.parseDouble(args[2]) : 0.05;
+
+        System.out.printf("virtual=%ds arrivals/s=%.3f %s%n", seconds, rate, ProtocolConfig.DEFAULT);
+        System.out.printf("%-8s %-10s %-10s %6s %8s %8s %8s %12s %12s %8s%n", "nodes", "topology",
+                          "routing", "group", "wall s", "arrivals", "entries", "mean wait ms",
+                          "max wait ms", "unserved");
+        for (String token : sizes.split(",")) {
+            int size = Integer.parseInt(token.trim());
+            int groupSize = Integer.getInteger("bench.groupSize", (int) Math.round(Math.sqrt(size)));
+            for (ProtocolConfig.Routing routing : ProtocolConfig.Routing.values()) {
+                // One token, as the ring of rings has, whatever token_ring.tokens says
+                ProtocolConfig config = ProtocolConfig.DEFAULT.withRouting(routing).withTokens(1);
+                run(size, "flat", config.withGroupSize(0), seconds, rate);
+                run(size, "hierarchy", config.withGroupSize(groupSize), seconds, rate);
+            }
+        }
+    }
+
+    private static void run(int size, String topology, ProtocolConfig config, long seconds, double rate) {
+        Simulator sim = new Simulator(size, SEED, 0, config);
+        sim.attach(BenchWorkload.of(size, rate, SEED));
+        long start = System.nanoTime();
+        sim.runUntil(seconds * 1000);
+        double wallSeconds = (System.nanoTime() - start) / 1e9;
+        long arrivals = sim.getArrivals();
+
+        long entries = sim.getCsEntries();
+        System.out.printf("%-8d %-10s %-10s %6d %8.2f %8d %8d %12.0f %12d %8d%n", size, topology,
+                          config.getRouting(), config.getGroupSize(), wallSeconds, arrivals, entries,
+                          sim.getTotalWaitMillis() / (double) Math.max(1, entries),
+                          sim.getMaxWaitMillis(), sim.getPendingRequests());
+    }
+}
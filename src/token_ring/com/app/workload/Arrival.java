@@ -0,0 +1,36 @@
+// Arrival.java
+package com.app.workload;
+
+import com.app.Priority;
+
+// One CS request: when, in ms from the start of the workload, and at which node,
+// as an index into the ring; with its Priority class and deadline, in ms from the
+// request (0 for none)
+public final class Arrival {
+    private final long time;
+    private final int node;
+    private final Priority priority;
+    private final long deadline;
+
+    public Arrival(long time, int node) {
+        this(time, node, Priority.NORMAL, 0);
+    }
+
+    public Arrival(long time, int node, Priority priority, long deadline) {
+        this.time = time;
+        this.node = node;
+        this.priority = priority;
+        this.deadline = deadline;
+    }
+
+    public long getTime() { return time; }
+    public int getNode() { return node; }
+    public Priority getPriority() { return priority; }
+    public long getDeadline() { return deadline; }
+
+    @Override
+    public String toString() {
+        return "Arrival{time=" + time + ", node=" + node + ", priority=" + priority
+               + ", deadline=" + deadline + "}";
+    }
+}
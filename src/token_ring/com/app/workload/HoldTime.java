@@ -0,0 +1,66 @@
+// HoldTime.java
+package com.app.workload;
+
+import java.util.Random;
+
+// How long each CS entry lasts. Like Workload, every distribution draws from its
+// own seeded Random.
+//
+// Specs, as taken by parse() and the token_ring.holdTime / sweep.holdTime properties:
+//   fixed:MS            always MS
+//   uniform:MIN:MAX     uniform between MIN and MAX ms
+//   exp:MEAN            exponential with mean MEAN ms
+//   pareto:MIN:ALPHA    heavy tail: at least MIN ms, shape ALPHA (> 1 for a finite mean)
+public interface HoldTime {
+    long nextMillis();
+
+    static HoldTime fixed(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Negative hold time: " + millis);
+        }
+        return () -> millis;
+    }
+
+    static HoldTime uniform(long minMillis, long maxMillis, long seed) {
+        if (minMillis < 0 || maxMillis < minMillis) {
+            throw new IllegalArgumentException("Bad hold time range: " + minMillis + ".."
+                                               + maxMillis);
+        }
+        Random rand = new Random(seed);
+        return () -> minMillis + (long) (rand.nextDouble() * (maxMillis - minMillis + 1));
+    }
+
+    static HoldTime exponential(double meanMillis, long seed) {
+        if (!(meanMillis > 0)) {
+            throw new IllegalArgumentException("Mean hold time must be positive: " + meanMillis);
+        }
+        Random rand = new Random(seed);
+        return () -> Math.round(-Math.log(1 - rand.nextDouble()) * meanMillis);
+    }
+
+    static HoldTime pareto(long minMillis, double alpha, long seed) {
+        if (minMillis <= 0 || !(alpha > 0)) {
+            throw new IllegalArgumentException("Bad Pareto hold time: " + minMillis + ", " + alpha);
+        }
+        Random rand = new Random(seed);
+        return () -> Math.round(minMillis / Math.pow(1 - rand.nextDouble(), 1 / alpha));
+    }
+
+    static HoldTime parse(String spec, long seed) {
+        String[] parts = spec.split(":");
+        try {
+            switch (parts[0]) {
+                case "fixed": return fixed(Long.parseLong(parts[1]));
+                case "uniform":
+                    return uniform(Long.parseLong(parts[1]), Long.parseLong(parts[2]), seed);
+                case "exp": return exponential(Double.parseDouble(parts[1]), seed);
+                case "pareto":
+                    return pareto(Long.parseLong(parts[1]), Double.parseDouble(parts[2]), seed);
+                default: break;
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException("Bad hold time spec: " + spec, e);
+        }
+        throw new IllegalArgumentException("Unknown hold time: " + spec);
+    }
+}
@@ -0,0 +1,40 @@
+// HotspotWorkload.java
+package com.app.workload;
+
+import java.util.Arrays;
+
+// Poisson arrivals where a few randomly chosen nodes receive a fixed share of them;
+// the rest go to uniformly random nodes
+class HotspotWorkload extends PoissonWorkload {
+    private final int[] hot;
+    private final double hotShare;
+
+    HotspotWorkload(int nodes, double ratePerSecond, int hotNodes, double hotShare, long seed) {
+        super(nodes, ratePerSecond, seed);
+        if (hotNodes < 1 || hotNodes > nodes || hotShare < 0 || hotShare > 1) {
+            throw new IllegalArgumentException("Bad hotspot: " + hotNodes + " of " + nodes
+                                               + " nodes with share " + hotShare);
+        }
+        this.hotShare = hotShare;
+        // Partial Fisher-Yates: the first hotNodes of a shuffled ring
+        int[] order = new int[nodes];
+        for (int i = 0; i < nodes; i++) {
+            order[i] = i;
+        }
+        for (int i = 0; i < hotNodes; i++) {
+            int j = i + rand.nextInt(nodes - i);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        this.hot = Arrays.copyOf(order, hotNodes);
+    }
+
+    @Override
+    protected int pickNode() {
+        if (rand.nextDouble() < hotShare) {
+            return hot[rand.nextInt(hot.length)];
+        }
+        return rand.nextInt(nodes);
+    }
+}
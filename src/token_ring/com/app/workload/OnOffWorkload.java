@@ -0,0 +1,41 @@
+// OnOffWorkload.java
+package com.app.workload;
+
+import java.util.Random;
+
+// Bursts: Poisson arrivals during on periods, none during off periods, with
+// exponentially distributed period lengths. Starts at the beginning of an on period.
+class OnOffWorkload implements Workload {
+    private final int nodes;
+    private final Random rand;
+    private final double meanGapMillis;
+    private final double meanOnMillis;
+    private final double meanOffMillis;
+    private double time = 0;
+    private double onUntil;
+
+    OnOffWorkload(int nodes, double ratePerSecond, long meanOnMillis, long meanOffMillis, long seed) {
+        if (nodes < 1 || !(ratePerSecond > 0) || meanOnMillis <= 0 || meanOffMillis < 0) {
+            throw new IllegalArgumentException("Bad on/off workload: " + ratePerSecond + " per s, on "
+                                               + meanOnMillis + " ms, off " + meanOffMillis + " ms");
+        }
+        this.nodes = nodes;
+        this.rand = new Random(seed);
+        this.meanGapMillis = 1000 / ratePerSecond;
+        this.meanOnMillis = meanOnMillis;
+        this.meanOffMillis = meanOffMillis;
+        this.onUntil = PoissonWorkload.exponential(rand, meanOnMillis);
+    }
+
+    @Override
+    public Arrival next() {
+        time += PoissonWorkload.exponential(rand, meanGapMillis);
+        // Memoryless: a gap that runs past the end of a burst restarts in the next one
+        while (time > onUntil) {
+            double offEnd = onUntil + PoissonWorkload.exponential(rand, meanOffMillis);
+            time = offEnd + PoissonWorkload.exponential(rand, meanGapMillis);
+            onUntil = offEnd + PoissonWorkload.exponential(rand, meanOnMillis);
+        }
+        return new Arrival((long) time, rand.nextInt(nodes));
+    }
+}
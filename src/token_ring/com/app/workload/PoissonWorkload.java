@@ -0,0 +1,36 @@
+// PoissonWorkload.java
+package com.app.workload;
+
+import java.util.Random;
+
+// Exponential gaps between arrivals, each at a uniformly random node
+class PoissonWorkload implements Workload {
+    protected final int nodes;
+    protected final Random rand;
+    private final double meanGapMillis;
+    private double time = 0;
+
+    PoissonWorkload(int nodes, double ratePerSecond, long seed) {
+        if (nodes < 1 || !(ratePerSecond > 0)) {
+            throw new IllegalArgumentException("Need nodes and a positive rate: " + nodes + ", "
+                                               + ratePerSecond);
+        }
+        this.nodes = nodes;
+        this.meanGapMillis = 1000 / ratePerSecond;
+        this.rand = new Random(seed);
+    }
+
+    @Override
+    public Arrival next() {
+        time += exponential(rand, meanGapMillis);
+        return new Arrival((long) time, pickNode());
+    }
+
+    protected int pickNode() {
+        return rand.nextInt(nodes);
+    }
+
+    static double exponential(Random rand, double mean) {
+        return -Math.log(1 - rand.nextDouble()) * mean;
+    }
+}
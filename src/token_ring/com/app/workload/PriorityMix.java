@@ -0,0 +1,72 @@
+// PriorityMix.java
+package com.app.workload;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.app.Priority;
+
+// Gives another workload's arrivals a Priority class and deadline, drawn per
+// arrival from its own seeded Random. Spec: comma-separated CLASS:SHARE[:DEADLINE_MS]
+// entries, e.g. "critical:0.1:3000,bulk:0.6"; arrivals left over stay NORMAL with
+// no deadline.
+final class PriorityMix implements Workload {
+    private final Workload inner;
+    private final Random rand;
+    private final Priority[] classes;
+    private final double[] upTo;
+    private final long[] deadlines;
+
+    PriorityMix(Workload inner, String spec, long seed) {
+        this.inner = inner;
+        this.rand = new Random(seed);
+        List<String> entries = new ArrayList<>();
+        for (String entry : spec.split(",")) {
+            if (!entry.isBlank()) {
+                entries.add(entry.trim());
+            }
+        }
+        classes = new Priority[entries.size()];
+        upTo = new double[entries.size()];
+        deadlines = new long[entries.size()];
+        double total = 0;
+        try {
+            for (int i = 0; i < entries.size(); i++) {
+                String[] parts = entries.get(i).split(":");
+                if (parts.length < 2 || parts.length > 3) {
+                    throw new IllegalArgumentException("Bad priority mix entry: " + entries.get(i));
+                }
+                classes[i] = Priority.parse(parts[0]);
+                double share = Double.parseDouble(parts[1]);
+                deadlines[i] = parts.length > 2 ? Long.parseLong(parts[2]) : 0;
+                if (share < 0 || deadlines[i] < 0) {
+                    throw new IllegalArgumentException("Bad priority mix entry: " + entries.get(i));
+                }
+                total += share;
+                upTo[i] = total;
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad priority mix: " + spec, e);
+        }
+        if (total > 1 + 1e-9) {
+            throw new IllegalArgumentException("Priority mix shares add up to " + total + ": "
+                                               + spec);
+        }
+    }
+
+    @Override
+    public Arrival next() {
+        Arrival arrival = inner.next();
+        if (arrival == null) {
+            return null;
+        }
+        double draw = rand.nextDouble();
+        for (int i = 0; i < classes.length; i++) {
+            if (draw < upTo[i]) {
+                return new Arrival(arrival.getTime(), arrival.getNode(), classes[i], deadlines[i]);
+            }
+        }
+        return arrival;
+    }
+}
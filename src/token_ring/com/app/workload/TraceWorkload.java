@@ -0,0 +1,103 @@
+// TraceWorkload.java
+package com.app.workload;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import com.app.Trace;
+import com.app.TraceReplay;
+
+// Replays recorded arrivals, shifted so the first is at time 0. Reads text files of
+// "ms,node" lines (blank lines and # comments skipped) or the REQUEST records of a
+// binary trace directory written with token_ring.traceDir.
+final class TraceWorkload implements Workload {
+    private final long[] times;
+    private final int[] nodes;
+    private int next = 0;
+
+    private TraceWorkload(long[] times, int[] nodes, int count) {
+        this.times = times;
+        this.nodes = nodes;
+        long first = count > 0 ? times[0] : 0;
+        for (int i = 0; i < count; i++) {
+            times[i] -= first;
+        }
+    }
+
+    static TraceWorkload load(Path path, int ringSize) throws IOException {
+        long[][] times = { new long[1024] };
+        int[][] ids = { new int[1024] };
+        int[] count = { 0 };
+        if (Files.isDirectory(path)) {
+            TraceReplay.scan(path, (kind, time, node, token, peer, c, value) -> {
+                if (kind == Trace.Kind.REQUEST) {
+                    append(times, ids, count, time, node);
+                }
+                return true;
+            });
+        } else {
+            try (BufferedReader reader = Files.newBufferedReader(path)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (line.isEmpty() || line.startsWith("#")) {
+                        continue;
+                    }
+                    String[] fields = line.split(",");
+                    append(times, ids, count, Long.parseLong(fields[0].trim()),
+                           Integer.parseInt(fields[1].trim()));
+                }
+            }
+        }
+        int n = count[0];
+        long[] t = Arrays.copyOf(times[0], n);
+        int[] ring = Arrays.copyOf(ids[0], n);
+        for (int i = 0; i < n; i++) {
+            ring[i] = Math.floorMod(ring[i], ringSize);
+        }
+        // Records from several threads can be slightly out of order
+        if (!isSorted(t)) {
+            Integer[] order = new Integer[n];
+            for (int i = 0; i < n; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> Long.compare(t[a], t[b]));
+            long[] sortedTimes = new long[n];
+            int[] sortedNodes = new int[n];
+            for (int i = 0; i < n; i++) {
+                sortedTimes[i] = t[order[i]];
+                sortedNodes[i] = ring[order[i]];
+            }
+            return new TraceWorkload(sortedTimes, sortedNodes, n);
+        }
+        return new TraceWorkload(t, ring, n);
+    }
+
+    private static void append(long[][] times, int[][] ids, int[] count, long time, int node) {
+        if (count[0] == times[0].length) {
+            times[0] = Arrays.copyOf(times[0], count[0] * 2);
+            ids[0] = Arrays.copyOf(ids[0], count[0] * 2);
+        }
+        times[0][count[0]] = time;
+        ids[0][count[0]] = node;
+        count[0]++;
+    }
+
+    private static boolean isSorted(long[] values) {
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] < values[i - 1]) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public Arrival next() {
+        if (next == times.length) {
+            return null;
+        }
+        Arrival arrival = new Arrival(times[next], nodes[next]);
+        next++;
+        return arrival;
+    }
+}
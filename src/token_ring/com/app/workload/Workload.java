@@ -0,0 +1,75 @@
+// Workload.java
+package com.app.workload;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+// A stream of CS requests. Every model draws from its own Random seeded at
+// construction, so the same spec and seed give the same arrivals on every run and
+// protocol variants can be compared under identical load.
+//
+// Specs, as taken by parse() and the token_ring.workload / sweep.workload properties:
+//   poisson:RATE                  RATE requests/s at uniformly random nodes
+//   onoff:RATE:ON_MS:OFF_MS       Poisson at RATE during on periods, silent during off
+//                                 periods; both exponential with the given means
+//   hotspot:RATE:HOT:SHARE        Poisson at RATE; HOT nodes picked at random get
+//                                 SHARE (0-1) of the requests, any node the rest
+//   trace:PATH                    replays a file of "ms,node" lines, or the REQUEST
+//                                 records of a binary trace directory
+//
+// withPriorities() then gives arrivals Priority classes and deadlines, from a mix
+// such as "critical:0.1:3000,bulk:0.6" (see PriorityMix and token_ring.priorityMix).
+public interface Workload {
+    // The next arrival, no earlier than the one before, or null when there are no more
+    Arrival next();
+
+    static Workload poisson(int nodes, double ratePerSecond, long seed) {
+        return new PoissonWorkload(nodes, ratePerSecond, seed);
+    }
+
+    static Workload onOff(int nodes, double ratePerSecond, long meanOnMillis, long meanOffMillis, long seed) {
+        return new OnOffWorkload(nodes, ratePerSecond, meanOnMillis, meanOffMillis, seed);
+    }
+
+    static Workload hotspot(int nodes, double ratePerSecond, int hotNodes, double hotShare, long seed) {
+        return new HotspotWorkload(nodes, ratePerSecond, hotNodes, hotShare, seed);
+    }
+
+    // Node indices in the trace beyond the ring wrap round it
+    static Workload fromTrace(Path path, int nodes) {
+        try {
+            return TraceWorkload.load(path, nodes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read workload trace " + path, e);
+        }
+    }
+
+    // Draws each arrival's class and deadline from mix with its own seeded Random
+    static Workload withPriorities(Workload workload, String mix, long seed) {
+        return new PriorityMix(workload, mix, seed);
+    }
+
+    static Workload parse(String spec, int nodes, long seed) {
+        String[] parts = spec.split(":", spec.startsWith("trace:") ? 2 : -1);
+        try {
+            switch (parts[0]) {
+                case "poisson":
+                    return poisson(nodes, Double.parseDouble(parts[1]), seed);
+                case "onoff":
+                    return onOff(nodes, Double.parseDouble(parts[1]), Long.parseLong(parts[2]),
+                                 Long.parseLong(parts[3]), seed);
+                case "hotspot":
+                    return hotspot(nodes, Double.parseDouble(parts[1]), Integer.parseInt(parts[2]),
+                                   Double.parseDouble(parts[3]), seed);
+                case "trace":
+                    return fromTrace(Path.of(parts[1]), nodes);
+                default:
+                    break;
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException("Bad workload spec: " + spec, e);
+        }
+        throw new IllegalArgumentException("Unknown workload: " + spec);
+    }
+}
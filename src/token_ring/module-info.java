@@ -0,0 +1,11 @@
+/**
+ * 
+ */
+/**
+ * 
+ */
+module token_ring {
+	requires jdk.jfr;
+
+	exports com.app to token_ring.ui;
+}